@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2025 Clove Twilight
+ * Licensed under the MIT License
+ * WingSync
+ */
+
+package uk.co.clovetwilight3.wingsync.benchmarks;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import uk.co.clovetwilight3.wingsync.storage.MySqlStorage;
+import uk.co.clovetwilight3.wingsync.storage.StorageBackend;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Deterministic player records shared by the benchmarks and the load generator.
+ *
+ * Record i belongs to Discord user i / 2, so most Discord users have two
+ * linked accounts, the common case on a real server.
+ */
+public final class BenchmarkData {
+
+    public static final int ACCOUNTS_PER_USER = 2;
+
+    private BenchmarkData() {
+    }
+
+    public static String uuid(int i) {
+        return offlineUuid(username(i)).toString();
+    }
+
+    /**
+     * @return The UUID an offline-mode server would give this name
+     */
+    public static UUID offlineUuid(String name) {
+        return UUID.nameUUIDFromBytes(("OfflinePlayer:" + name).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String username(int i) {
+        return "Player" + i;
+    }
+
+    public static String discordId(int i) {
+        return Long.toString(100_000_000_000_000_000L + i / ACCOUNTS_PER_USER);
+    }
+
+    public static String discordUsername(int i) {
+        return "user" + (i / ACCOUNTS_PER_USER);
+    }
+
+    public static void seed(StorageBackend storage, int records) {
+        for (int i = 0; i < records; i++) {
+            storage.storePlayerData(uuid(i), username(i), discordId(i), discordUsername(i));
+        }
+    }
+
+    /**
+     * Open MySQL storage on a fresh in-memory H2 database in MySQL mode.
+     */
+    public static MySqlStorage h2Storage(String name, int poolSize, Logger logger) throws SQLException {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("WingSync-Bench");
+        config.setJdbcUrl("jdbc:h2:mem:" + name + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        config.setMaximumPoolSize(poolSize);
+        return new MySqlStorage(new HikariDataSource(config), "H2 (MySQL mode)", logger);
+    }
+
+    /**
+     * @return A logger that only reports problems, so benchmark output stays readable
+     */
+    public static Logger quietLogger(String name) {
+        Logger logger = Logger.getLogger(name);
+        logger.setLevel(Level.WARNING);
+        return logger;
+    }
+
+    public static void deleteRecursively(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
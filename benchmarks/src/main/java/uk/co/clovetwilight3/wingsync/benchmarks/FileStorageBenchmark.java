@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2025 Clove Twilight
+ * Licensed under the MIT License
+ * WingSync
+ */
+
+package uk.co.clovetwilight3.wingsync.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.co.clovetwilight3.wingsync.metrics.MetricsRegistry;
+import uk.co.clovetwilight3.wingsync.storage.FileStorage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Steady-state file storage operations against a store of the given size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileStorageBenchmark {
+
+    @Param({"1000", "100000"})
+    public int records;
+
+    private Path dataFolder;
+    private FileStorage storage;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dataFolder = Files.createTempDirectory("wingsync-bench");
+        storage = new FileStorage(dataFolder.toFile(), BenchmarkData.quietLogger("WingSync-Bench"),
+                new MetricsRegistry(), 250, 1000, false);
+        storage.load();
+        BenchmarkData.seed(storage, records);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        storage.close();
+        BenchmarkData.deleteRecursively(dataFolder);
+    }
+
+    /**
+     * Relink an existing account, the common /register case.
+     */
+    @Benchmark
+    public void storePlayerData() {
+        int i = ThreadLocalRandom.current().nextInt(records);
+        storage.storePlayerData(BenchmarkData.uuid(i), BenchmarkData.username(i),
+                BenchmarkData.discordId(i), BenchmarkData.discordUsername(i));
+    }
+
+    @Benchmark
+    public List<String> getUsernamesByDiscordId() {
+        int i = ThreadLocalRandom.current().nextInt(records);
+        return storage.getUsernamesByDiscordId(BenchmarkData.discordId(i));
+    }
+
+    @Benchmark
+    public String getDiscordUsernameByMinecraftUsername() {
+        int i = ThreadLocalRandom.current().nextInt(records);
+        return storage.getDiscordUsernameByMinecraftUsername(BenchmarkData.username(i));
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2025 Clove Twilight
+ * Licensed under the MIT License
+ * WingSync
+ */
+
+package uk.co.clovetwilight3.wingsync.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.co.clovetwilight3.wingsync.metrics.MetricsRegistry;
+import uk.co.clovetwilight3.wingsync.storage.FileStorage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup cost of file storage: reading the JSON or binary snapshot and
+ * rebuilding the indexes, at several store sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FileStorageLoadBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int records;
+
+    @Param({"false", "true"})
+    public boolean binarySnapshot;
+
+    private Path dataFolder;
+    private FileStorage loaded;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dataFolder = Files.createTempDirectory("wingsync-bench");
+        FileStorage seed = newStorage();
+        seed.load();
+        BenchmarkData.seed(seed, records);
+        // Closing compacts everything into the snapshot, which is what each load reads
+        seed.close();
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeLoaded() {
+        if (loaded != null) {
+            loaded.close();
+            loaded = null;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkData.deleteRecursively(dataFolder);
+    }
+
+    @Benchmark
+    public FileStorage load() {
+        loaded = newStorage();
+        loaded.load();
+        return loaded;
+    }
+
+    private FileStorage newStorage() {
+        return new FileStorage(dataFolder.toFile(), BenchmarkData.quietLogger("WingSync-Bench"),
+                new MetricsRegistry(), 250, 1000, binarySnapshot);
+    }
+}
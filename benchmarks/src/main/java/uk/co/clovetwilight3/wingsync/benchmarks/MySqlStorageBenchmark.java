@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2025 Clove Twilight
+ * Licensed under the MIT License
+ * WingSync
+ */
+
+package uk.co.clovetwilight3.wingsync.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.co.clovetwilight3.wingsync.storage.MySqlStorage;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MySQL storage operations against an in-memory H2 database in MySQL mode.
+ *
+ * H2 has no network hop, so these numbers are a floor for the SQL and pool
+ * overhead, not a prediction of latency against a real MySQL server.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MySqlStorageBenchmark {
+
+    @Param({"1000", "100000"})
+    public int records;
+
+    private MySqlStorage storage;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        storage = BenchmarkData.h2Storage("wingsync-" + records, 10, BenchmarkData.quietLogger("WingSync-Bench"));
+        BenchmarkData.seed(storage, records);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        storage.close();
+    }
+
+    @Benchmark
+    public void storePlayerData() {
+        int i = ThreadLocalRandom.current().nextInt(records);
+        storage.storePlayerData(BenchmarkData.uuid(i), BenchmarkData.username(i),
+                BenchmarkData.discordId(i), BenchmarkData.discordUsername(i));
+    }
+
+    @Benchmark
+    public List<String> getUsernamesByDiscordId() {
+        int i = ThreadLocalRandom.current().nextInt(records);
+        return storage.getUsernamesByDiscordId(BenchmarkData.discordId(i));
+    }
+
+    @Benchmark
+    public String getDiscordUsernameByMinecraftUsername() {
+        int i = ThreadLocalRandom.current().nextInt(records);
+        return storage.getDiscordUsernameByMinecraftUsername(BenchmarkData.username(i));
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2025 Clove Twilight
+ * Licensed under the MIT License
+ * WingSync
+ */
+
+package uk.co.clovetwilight3.wingsync.benchmarks.loadgen;
+
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.Server;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitScheduler;
+
+import java.lang.reflect.Field;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+/**
+ * Just enough of a Bukkit server for WingSync's whitelist and player lookups:
+ * an in-memory whitelist, offline players, and a single "server thread" that
+ * runs scheduled tasks at 20 ticks per second.
+ */
+final class FakeServer {
+
+    private static final long TICK_MILLIS = 50;
+
+    private final Logger logger;
+    private final ScheduledExecutorService serverThread;
+    private final Map<UUID, OfflinePlayer> players = new ConcurrentHashMap<>();
+    private final Map<UUID, String> names = new ConcurrentHashMap<>();
+    private final Map<String, UUID> uuidsByName = new ConcurrentHashMap<>();
+    private final Set<UUID> whitelist = ConcurrentHashMap.newKeySet();
+    private final Plugin plugin;
+
+    FakeServer(Logger logger) {
+        this.logger = logger;
+        this.serverThread = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "Server thread");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.plugin = Stubs.of(Plugin.class, Map.of(
+                "getLogger", args -> logger,
+                "getName", args -> "WingSync"));
+    }
+
+    /**
+     * Make this the server behind the static {@link Bukkit} methods.
+     */
+    void install() throws ReflectiveOperationException {
+        BukkitScheduler scheduler = Stubs.of(BukkitScheduler.class, Map.of(
+                "runTask", args -> {
+                    serverThread.execute((Runnable) args[1]);
+                    return null;
+                },
+                "runTaskLater", args -> {
+                    serverThread.schedule((Runnable) args[1], (Long) args[2] * TICK_MILLIS, TimeUnit.MILLISECONDS);
+                    return null;
+                }));
+
+        Map<String, Function<Object[], Object>> handlers = Map.of(
+                "getLogger", args -> logger,
+                "getName", args -> "WingSync Load Generator",
+                "getScheduler", args -> scheduler,
+                "getOfflinePlayer", args -> args[0] instanceof UUID uuid ? player(uuid) : playerIfCached((String) args[0]),
+                "getOfflinePlayerIfCached", args -> playerIfCached((String) args[0]),
+                "getWhitelistedPlayers", args -> whitelistedPlayers());
+        Server server = Stubs.of(Server.class, handlers);
+
+        // Bukkit.setServer also prints build information that only a real server has
+        Field field = Bukkit.class.getDeclaredField("server");
+        field.setAccessible(true);
+        field.set(null, server);
+    }
+
+    Plugin plugin() {
+        return plugin;
+    }
+
+    /**
+     * @return An executor that runs tasks on the server thread
+     */
+    Executor mainThread() {
+        return serverThread::execute;
+    }
+
+    /**
+     * Add a player to the server's name cache, as if they had joined before or
+     * had their profile looked up.
+     */
+    void cacheName(UUID uuid, String name) {
+        names.put(uuid, name);
+        uuidsByName.put(name.toLowerCase(Locale.ROOT), uuid);
+    }
+
+    void whitelist(UUID uuid) {
+        whitelist.add(uuid);
+    }
+
+    int whitelistSize() {
+        return whitelist.size();
+    }
+
+    void shutdown() {
+        serverThread.shutdown();
+    }
+
+    private OfflinePlayer playerIfCached(String name) {
+        UUID uuid = uuidsByName.get(name.toLowerCase(Locale.ROOT));
+        return uuid != null ? player(uuid) : null;
+    }
+
+    private OfflinePlayer player(UUID uuid) {
+        return players.computeIfAbsent(uuid, id -> Stubs.of(OfflinePlayer.class, Map.of(
+                "getUniqueId", args -> id,
+                "getName", args -> names.get(id),
+                "isWhitelisted", args -> whitelist.contains(id),
+                "setWhitelisted", args -> {
+                    if ((Boolean) args[0]) {
+                        whitelist.add(id);
+                    } else {
+                        whitelist.remove(id);
+                    }
+                    return null;
+                })));
+    }
+
+    private Set<OfflinePlayer> whitelistedPlayers() {
+        Set<OfflinePlayer> result = new HashSet<>();
+        for (UUID uuid : whitelist) {
+            result.add(player(uuid));
+        }
+        return result;
+    }
+}
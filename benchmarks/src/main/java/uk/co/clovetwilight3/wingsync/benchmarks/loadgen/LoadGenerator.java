@@ -0,0 +1,316 @@
+/*
+ * Copyright (c) 2025 Clove Twilight
+ * Licensed under the MIT License
+ * WingSync
+ */
+
+package uk.co.clovetwilight3.wingsync.benchmarks.loadgen;
+
+import uk.co.clovetwilight3.wingsync.audit.AuditLog;
+import uk.co.clovetwilight3.wingsync.audit.FileAuditStore;
+import uk.co.clovetwilight3.wingsync.bans.BanProcessor;
+import uk.co.clovetwilight3.wingsync.benchmarks.BenchmarkData;
+import uk.co.clovetwilight3.wingsync.discord.CommandAdmission;
+import uk.co.clovetwilight3.wingsync.discord.DiscordSlashCommandListener;
+import uk.co.clovetwilight3.wingsync.discord.LinkPolicy;
+import uk.co.clovetwilight3.wingsync.metrics.MetricsRegistry;
+import uk.co.clovetwilight3.wingsync.profile.ProfileLookup;
+import uk.co.clovetwilight3.wingsync.profile.UuidResolver;
+import uk.co.clovetwilight3.wingsync.storage.FileStorage;
+import uk.co.clovetwilight3.wingsync.storage.InstrumentedStorage;
+import uk.co.clovetwilight3.wingsync.storage.StorageBackend;
+import uk.co.clovetwilight3.wingsync.storage.StorageExecutor;
+import uk.co.clovetwilight3.wingsync.whitelist.WhitelistQueue;
+import uk.co.clovetwilight3.wingsync.whitelist.WhitelistReconciler;
+import uk.co.clovetwilight3.wingsync.whitelist.WhitelistSnapshot;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Replays a mix of simulated slash commands through
+ * {@link DiscordSlashCommandListener}, with no Discord connection and no
+ * Minecraft server, and reports throughput and tail latency per command.
+ *
+ * Each worker sends a command, waits for its reply, then sends the next
+ * (a closed loop), so concurrency is the number of users typing at once.
+ * Latency runs from the event reaching the listener to the reply being sent.
+ *
+ * Options, all optional:
+ * --storage=file|h2  --records=10000  --concurrency=32  --duration=30  --warmup=5
+ * --profile-latency-ms=0  --mix=whois:40,whomc:30,register:15,remove:5,listwhitelist:10
+ */
+public final class LoadGenerator {
+
+    private static final String ADMIN_ID = "1";
+    private static final AtomicLong NEW_PLAYERS = new AtomicLong();
+
+    private final Map<String, String> options;
+    private final int records;
+    private final Map<String, Integer> mix;
+    private final int mixTotal;
+
+    private LoadGenerator(Map<String, String> options) {
+        this.options = options;
+        this.records = Integer.parseInt(options.getOrDefault("records", "10000"));
+        this.mix = parseMix(options.getOrDefault("mix", "whois:40,whomc:30,register:15,remove:5,listwhitelist:10"));
+        this.mixTotal = mix.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            String[] parts = arg.replaceFirst("^--", "").split("=", 2);
+            options.put(parts[0], parts.length > 1 ? parts[1] : "true");
+        }
+        new LoadGenerator(options).run();
+    }
+
+    private void run() throws Exception {
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "32"));
+        long durationSeconds = Long.parseLong(options.getOrDefault("duration", "30"));
+        long warmupSeconds = Long.parseLong(options.getOrDefault("warmup", "5"));
+        long profileLatencyMillis = Long.parseLong(options.getOrDefault("profile-latency-ms", "0"));
+        String storageType = options.getOrDefault("storage", "file");
+
+        Logger logger = BenchmarkData.quietLogger("WingSync-LoadGen");
+        FakeServer server = new FakeServer(logger);
+        server.install();
+
+        MetricsRegistry metrics = new MetricsRegistry();
+        StorageExecutor storageExecutor = new StorageExecutor(server.mainThread());
+        Path dataFolder = Files.createTempDirectory("wingsync-loadgen");
+        StorageBackend backend;
+        if (storageType.equals("h2")) {
+            backend = BenchmarkData.h2Storage("wingsync-loadgen", 10, logger);
+        } else {
+            FileStorage fileStorage = new FileStorage(dataFolder.toFile(), logger, metrics, 250, 1000, false);
+            fileStorage.load();
+            backend = fileStorage;
+        }
+        StorageBackend storage = new InstrumentedStorage(backend, metrics);
+
+        System.out.println("Seeding " + records + " linked and whitelisted players...");
+        BenchmarkData.seed(backend, records);
+        for (int i = 0; i < records; i++) {
+            UUID uuid = UUID.fromString(BenchmarkData.uuid(i));
+            server.cacheName(uuid, BenchmarkData.username(i));
+            server.whitelist(uuid);
+        }
+
+        // Stands in for Mojang's profile API, which is only hit for names the server has never seen
+        ProfileLookup profileLookup = name -> {
+            if (profileLatencyMillis > 0) {
+                Thread.sleep(profileLatencyMillis);
+            }
+            UUID uuid = BenchmarkData.offlineUuid(name);
+            server.cacheName(uuid, name);
+            return uuid;
+        };
+
+        WhitelistQueue whitelistQueue = new WhitelistQueue(server.plugin(), metrics, 2);
+        WhitelistSnapshot whitelistSnapshot = new WhitelistSnapshot(storageExecutor, TimeUnit.MINUTES.toMillis(5));
+        whitelistQueue.addListener(whitelistSnapshot::onChange);
+        // History is always kept in files here, as the h2 stand-in has no history table
+        FileAuditStore auditStore = new FileAuditStore(dataFolder.toFile(), logger, 50000);
+        auditStore.load();
+        AuditLog auditLog = new AuditLog(logger, metrics, 1000, 500, 100000);
+        auditLog.setStore(auditStore);
+        UuidResolver uuidResolver = new UuidResolver(storageExecutor, () -> storage, profileLookup,
+                10000, TimeUnit.HOURS.toMillis(6), TimeUnit.MINUTES.toMillis(5));
+        BanProcessor banProcessor = new BanProcessor(storageExecutor, () -> CompletableFuture.completedFuture(storage),
+                whitelistQueue, uuidResolver, auditLog, logger, metrics, 500);
+        DiscordSlashCommandListener listener = new DiscordSlashCommandListener(() -> storage, storageExecutor,
+                uuidResolver, whitelistQueue, whitelistSnapshot, banProcessor,
+                new WhitelistReconciler(storageExecutor, () -> storage, whitelistQueue, auditLog, logger),
+                // Limits high enough never to turn the simulated users away
+                new CommandAdmission(Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, metrics),
+                // Simulated users only relink their own accounts, so claims are never refused
+                () -> new LinkPolicy(0, true),
+                auditLog, metrics, logger, () -> ADMIN_ID);
+
+        System.out.println("Running " + concurrency + " workers for " + durationSeconds + "s after a "
+                + warmupSeconds + "s warm-up against " + storage.getName() + "...");
+
+        long warmupEnd = System.nanoTime() + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long end = warmupEnd + TimeUnit.SECONDS.toNanos(durationSeconds);
+        List<Recorder> recorders = new ArrayList<>();
+        List<Thread> workers = new ArrayList<>();
+        for (int w = 0; w < concurrency; w++) {
+            Recorder recorder = new Recorder();
+            recorders.add(recorder);
+            workers.add(Thread.ofVirtual().name("loadgen-" + w).start(() -> work(listener, recorder, warmupEnd, end)));
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        report(recorders, durationSeconds);
+        System.out.println("Whitelist size at end: " + server.whitelistSize());
+
+        storageExecutor.close(5, TimeUnit.SECONDS);
+        auditLog.close();
+        storage.close();
+        server.shutdown();
+        BenchmarkData.deleteRecursively(dataFolder);
+    }
+
+    private void work(DiscordSlashCommandListener listener, Recorder recorder, long warmupEnd, long end) {
+        long now;
+        while ((now = System.nanoTime()) < end) {
+            SimulatedInteraction interaction = nextInteraction();
+            try {
+                listener.onSlashCommandInteraction(interaction.toEvent());
+                String reply = interaction.reply().get(30, TimeUnit.SECONDS);
+                long elapsed = System.nanoTime() - now;
+                if (now >= warmupEnd) {
+                    recorder.record(interaction.command(), elapsed, reply.startsWith("❌"));
+                }
+            } catch (Exception e) {
+                if (now >= warmupEnd) {
+                    recorder.error(interaction.command());
+                }
+            }
+        }
+    }
+
+    private SimulatedInteraction nextInteraction() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int i = random.nextInt(records);
+        String command = pickCommand(random.nextInt(mixTotal));
+
+        return switch (command) {
+            case "whois" -> new SimulatedInteraction(command, ADMIN_ID, "admin")
+                    .withUser("user", SimulatedInteraction.user(BenchmarkData.discordId(i), BenchmarkData.discordUsername(i)));
+            case "whomc" -> new SimulatedInteraction(command, ADMIN_ID, "admin")
+                    .withString("username", BenchmarkData.username(i));
+            case "register" -> random.nextBoolean()
+                    // Relink an existing account, or link a name nobody has used yet
+                    ? new SimulatedInteraction(command, BenchmarkData.discordId(i), BenchmarkData.discordUsername(i))
+                            .withString("player", BenchmarkData.username(i))
+                    : new SimulatedInteraction(command, BenchmarkData.discordId(i), BenchmarkData.discordUsername(i))
+                            .withString("player", "LoadPlayer" + NEW_PLAYERS.incrementAndGet());
+            case "remove" -> new SimulatedInteraction(command, BenchmarkData.discordId(i), BenchmarkData.discordUsername(i))
+                    .withString("player", BenchmarkData.username(i));
+            default -> new SimulatedInteraction(command, ADMIN_ID, "admin");
+        };
+    }
+
+    private String pickCommand(int roll) {
+        for (Map.Entry<String, Integer> entry : mix.entrySet()) {
+            roll -= entry.getValue();
+            if (roll < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("Empty command mix");
+    }
+
+    private static Map<String, Integer> parseMix(String spec) {
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        for (String part : spec.split(",")) {
+            String[] entry = part.split(":");
+            mix.put(entry[0].trim(), Integer.parseInt(entry[1].trim()));
+        }
+        return mix;
+    }
+
+    private void report(List<Recorder> recorders, long durationSeconds) {
+        Map<String, Recorder> byCommand = new LinkedHashMap<>();
+        Recorder all = new Recorder();
+        for (String command : mix.keySet()) {
+            byCommand.put(command, new Recorder());
+        }
+        for (Recorder recorder : recorders) {
+            recorder.mergeInto(byCommand, all);
+        }
+
+        System.out.printf(Locale.ROOT, "%n%-14s %9s %9s %9s %9s %9s %9s %9s %7s %7s%n",
+                "command", "count", "ops/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "denied", "errors");
+        for (Map.Entry<String, Recorder> entry : byCommand.entrySet()) {
+            printRow(entry.getKey(), entry.getValue(), durationSeconds);
+        }
+        printRow("all", all, durationSeconds);
+    }
+
+    private static void printRow(String name, Recorder recorder, long durationSeconds) {
+        long[] sorted = recorder.sortedLatencies();
+        System.out.printf(Locale.ROOT, "%-14s %9d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f %7d %7d%n",
+                name, sorted.length, (double) sorted.length / durationSeconds,
+                millis(sorted, 0.50), millis(sorted, 0.90), millis(sorted, 0.99), millis(sorted, 0.999),
+                millis(sorted, 1.0), recorder.denied, recorder.errors);
+    }
+
+    private static double millis(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+
+    /**
+     * Latencies recorded by one worker, merged once the run is over.
+     */
+    private static final class Recorder {
+
+        private final Map<String, Recorder> byCommand = new HashMap<>();
+        private long[] latencies = new long[1024];
+        private int size;
+        private long denied;
+        private long errors;
+
+        void record(String command, long nanos, boolean wasDenied) {
+            Recorder recorder = byCommand.computeIfAbsent(command, key -> new Recorder());
+            recorder.add(nanos);
+            if (wasDenied) {
+                recorder.denied++;
+            }
+        }
+
+        void error(String command) {
+            byCommand.computeIfAbsent(command, key -> new Recorder()).errors++;
+        }
+
+        void mergeInto(Map<String, Recorder> totals, Recorder all) {
+            byCommand.forEach((command, recorder) -> {
+                totals.computeIfAbsent(command, key -> new Recorder()).addAll(recorder);
+                all.addAll(recorder);
+            });
+        }
+
+        long[] sortedLatencies() {
+            long[] sorted = Arrays.copyOf(latencies, size);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+
+        private void add(long nanos) {
+            if (size == latencies.length) {
+                latencies = Arrays.copyOf(latencies, size * 2);
+            }
+            latencies[size++] = nanos;
+        }
+
+        private void addAll(Recorder other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.latencies[i]);
+            }
+            denied += other.denied;
+            errors += other.errors;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2025 Clove Twilight
+ * Licensed under the MIT License
+ * WingSync
+ */
+
+package uk.co.clovetwilight3.wingsync.benchmarks.loadgen;
+
+import gnu.trove.map.hash.TLongObjectHashMap;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.interactions.InteractionHook;
+import net.dv8tion.jda.api.interactions.commands.OptionMapping;
+import net.dv8tion.jda.api.interactions.commands.OptionType;
+import net.dv8tion.jda.api.interactions.commands.SlashCommandInteraction;
+import net.dv8tion.jda.api.requests.restaction.WebhookMessageCreateAction;
+import net.dv8tion.jda.api.requests.restaction.interactions.ReplyCallbackAction;
+import net.dv8tion.jda.api.utils.data.DataObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One simulated slash command. The event behaves like a real one as far as
+ * WingSync can tell, and {@link #reply()} completes with the text of the
+ * first real response: an immediate reply or a follow-up after deferring.
+ */
+final class SimulatedInteraction {
+
+    private static final JDA JDA_STUB = Stubs.of(JDA.class, Map.of());
+    private static final AtomicLong RESPONSE_NUMBERS = new AtomicLong();
+
+    private final String command;
+    private final User user;
+    private final List<OptionMapping> options = new ArrayList<>();
+    private final TLongObjectHashMap<Object> resolved = new TLongObjectHashMap<>();
+    private final CompletableFuture<String> reply = new CompletableFuture<>();
+
+    SimulatedInteraction(String command, String userId, String userName) {
+        this.command = command;
+        this.user = user(userId, userName);
+    }
+
+    static User user(String id, String name) {
+        long idLong = Long.parseLong(id);
+        return Stubs.of(User.class, Map.of(
+                "getIdLong", args -> idLong,
+                "getName", args -> name,
+                "getEffectiveName", args -> name,
+                "getAsTag", args -> name));
+    }
+
+    SimulatedInteraction withString(String name, String value) {
+        options.add(option(name, OptionType.STRING, value));
+        return this;
+    }
+
+    SimulatedInteraction withUser(String name, User value) {
+        resolved.put(value.getIdLong(), value);
+        options.add(option(name, OptionType.USER, value.getId()));
+        return this;
+    }
+
+    String command() {
+        return command;
+    }
+
+    CompletableFuture<String> reply() {
+        return reply;
+    }
+
+    SlashCommandInteractionEvent toEvent() {
+        InteractionHook hook = Stubs.of(InteractionHook.class, Map.of(
+                "sendMessage", args -> followUp(args[0] instanceof String content ? content : String.valueOf(args[0]))));
+        SlashCommandInteraction interaction = Stubs.of(SlashCommandInteraction.class, Map.of(
+                "getName", args -> command,
+                "getFullCommandName", args -> command,
+                "getUser", args -> user,
+                "getOptions", args -> options,
+                "getHook", args -> hook,
+                "deferReply", args -> replyAction(),
+                "isAcknowledged", args -> false));
+        return new SlashCommandInteractionEvent(JDA_STUB, RESPONSE_NUMBERS.incrementAndGet(), interaction);
+    }
+
+    private OptionMapping option(String name, OptionType type, String value) {
+        DataObject data = DataObject.empty()
+                .put("name", name)
+                .put("type", type.getKey())
+                .put("value", value);
+        return new OptionMapping(data, resolved, null, null);
+    }
+
+    /**
+     * Deferring queues an action with no content; only a queued action with
+     * content counts as the reply.
+     */
+    private ReplyCallbackAction replyAction() {
+        String[] content = new String[1];
+        ReplyCallbackAction[] self = new ReplyCallbackAction[1];
+        self[0] = Stubs.of(ReplyCallbackAction.class, Map.of(
+                "setContent", args -> {
+                    content[0] = (String) args[0];
+                    return self[0];
+                },
+                "queue", args -> {
+                    if (content[0] != null) {
+                        reply.complete(content[0]);
+                    }
+                    return null;
+                }));
+        return self[0];
+    }
+
+    private WebhookMessageCreateAction<?> followUp(String content) {
+        return Stubs.of(WebhookMessageCreateAction.class, Map.of(
+                "queue", args -> {
+                    reply.complete(content);
+                    return null;
+                }));
+    }
+}
@@ -7,80 +7,140 @@
 package uk.co.clovetwilight3.wingsync;
 
 import org.bukkit.Bukkit;
-import org.bukkit.OfflinePlayer;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.plugin.java.JavaPlugin;
-import net.dv8tion.jda.api.JDA;
-import net.dv8tion.jda.api.JDABuilder;
-import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
-import net.dv8tion.jda.api.events.session.ReadyEvent;
-import net.dv8tion.jda.api.hooks.ListenerAdapter;
-import net.dv8tion.jda.api.interactions.commands.OptionType;
-import net.dv8tion.jda.api.interactions.commands.build.Commands;
-import net.dv8tion.jda.api.requests.GatewayIntent;
+import uk.co.clovetwilight3.wingsync.audit.AuditLog;
+import uk.co.clovetwilight3.wingsync.audit.AuditStore;
+import uk.co.clovetwilight3.wingsync.audit.FileAuditStore;
+import uk.co.clovetwilight3.wingsync.audit.MySqlAuditStore;
+import uk.co.clovetwilight3.wingsync.bans.BanProcessor;
+import uk.co.clovetwilight3.wingsync.commands.MigrateCommand;
+import uk.co.clovetwilight3.wingsync.commands.ReloadCommand;
+import uk.co.clovetwilight3.wingsync.discord.CommandAdmission;
+import uk.co.clovetwilight3.wingsync.discord.CommandRegistrar;
+import uk.co.clovetwilight3.wingsync.discord.DiscordBot;
+import uk.co.clovetwilight3.wingsync.discord.DiscordMembershipLookup;
+import uk.co.clovetwilight3.wingsync.discord.DiscordSlashCommandListener;
+import uk.co.clovetwilight3.wingsync.discord.GuildMemberSync;
+import uk.co.clovetwilight3.wingsync.discord.LinkPolicy;
+import uk.co.clovetwilight3.wingsync.enforcement.LinkGate;
 import uk.co.clovetwilight3.wingsync.listeners.CloveLibListener;
+import uk.co.clovetwilight3.wingsync.listeners.LoginListener;
+import uk.co.clovetwilight3.wingsync.metrics.MetricsRegistry;
+import uk.co.clovetwilight3.wingsync.metrics.PrometheusExporter;
+import uk.co.clovetwilight3.wingsync.network.NetworkSync;
+import uk.co.clovetwilight3.wingsync.profile.PaperProfileLookup;
+import uk.co.clovetwilight3.wingsync.profile.UuidResolver;
+import uk.co.clovetwilight3.wingsync.storage.FileStorage;
+import uk.co.clovetwilight3.wingsync.storage.CachingStorage;
+import uk.co.clovetwilight3.wingsync.storage.InstrumentedStorage;
+import uk.co.clovetwilight3.wingsync.storage.MySqlStorage;
+import uk.co.clovetwilight3.wingsync.storage.StorageBackend;
+import uk.co.clovetwilight3.wingsync.storage.StorageExecutor;
+import uk.co.clovetwilight3.wingsync.whitelist.WhitelistQueue;
+import uk.co.clovetwilight3.wingsync.whitelist.WhitelistReconciler;
+import uk.co.clovetwilight3.wingsync.whitelist.WhitelistSnapshot;
+import com.zaxxer.hikari.HikariDataSource;
 
-import java.util.UUID;
-import java.util.concurrent.TimeUnit;
-import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.List;
-import java.util.ArrayList;
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
-import java.lang.reflect.Type;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 public class Main extends JavaPlugin {
 
-    private Connection connection;
-    private JDA jda;
-    private boolean useMysql;
-    private File dataFile;
-    private Map<String, PlayerData> playerDataMap = new HashMap<>();
-    private Gson gson = new Gson();
-
-    // Inner class to store player data
-    public static class PlayerData {
-        public String uuid;
-        public String username;
-        public String discordId;
-        public String discordUsername;
-        public long linkedAt;
-
-        public PlayerData(String uuid, String username, String discordId, String discordUsername) {
-            this.uuid = uuid;
-            this.username = username;
-            this.discordId = discordId;
-            this.discordUsername = discordUsername;
-            this.linkedAt = System.currentTimeMillis();
-        }
+    /**
+     * Everything /wsreload replaces. bot is null in network mode, where the
+     * network lease decides when a bot runs, and audit is null when the
+     * history store is unchanged.
+     */
+    private record Services(FileConfiguration config, String nodeId, StorageBackend storage, AuditStore audit,
+                            DiscordSlashCommandListener listener, DiscordBot bot, NetworkSync networkSync,
+                            boolean network) {
     }
 
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private PrometheusExporter metricsExporter;
+    private volatile FileConfiguration config;
+    private volatile DiscordBot discordBot;
+    private volatile DiscordSlashCommandListener commandListener;
+    private volatile NetworkSync networkSync;
+    // Bumped by each reload, so leadership changes from a replaced NetworkSync are ignored
+    private volatile long generation;
+    private final AtomicBoolean reloading = new AtomicBoolean();
+    private volatile String nodeId;
+    private volatile StorageBackend storage;
+    private volatile CompletableFuture<StorageBackend> storageReady;
+    private StorageExecutor storageExecutor;
+    private WhitelistQueue whitelistQueue;
+    private BanProcessor banProcessor;
+    private UuidResolver uuidResolver;
+    private WhitelistSnapshot whitelistSnapshot;
+    private CommandAdmission commandAdmission;
+    private AuditLog auditLog;
+    private MigrateCommand migrateCommand;
+    private volatile LinkGate linkGate;
+    private GuildMemberSync memberSync;
+
     @Override
     public void onEnable() {
         saveDefaultConfig();
 
-        // Check if MySQL is enabled
-        useMysql = getConfig().getBoolean("mysql.enabled", false);
-
-        if (useMysql) {
-            setupDatabase();
-            getLogger().info("MySQL database enabled and configured.");
-        } else {
-            setupFileStorage();
-            getLogger().info("File-based storage enabled. MySQL disabled.");
-        }
+        startMetricsExporter();
+
+        storageExecutor = new StorageExecutor(task -> Bukkit.getScheduler().runTask(this, task));
+        whitelistQueue = new WhitelistQueue(this, metrics, getConfig().getLong("whitelist.batch_window_ticks", 2));
+        whitelistSnapshot = new WhitelistSnapshot(storageExecutor,
+                TimeUnit.SECONDS.toMillis(getConfig().getLong("whitelist.list_refresh_seconds", 300)));
+        whitelistQueue.addListener(whitelistSnapshot::onChange);
+        // Entries wait in memory until storage has loaded and the history store is set
+        auditLog = new AuditLog(getLogger(), metrics, getConfig().getLong("audit.flush_interval_ms", 1000),
+                getConfig().getInt("audit.batch_size", 500), getConfig().getInt("audit.max_pending", 100000));
+        uuidResolver = new UuidResolver(storageExecutor, this::getStorage, new PaperProfileLookup(),
+                getConfig().getInt("resolver.cache_size", 10000),
+                TimeUnit.MINUTES.toMillis(getConfig().getLong("resolver.ttl_minutes", 360)),
+                TimeUnit.SECONDS.toMillis(getConfig().getLong("resolver.negative_ttl_seconds", 300)));
+        // Every five minutes; Bukkit cancels the task when the plugin disables
+        Bukkit.getScheduler().runTaskTimerAsynchronously(this, uuidResolver::purgeExpired, 6000, 6000);
+        banProcessor = new BanProcessor(storageExecutor, this::whenStorageReady, whitelistQueue, uuidResolver, auditLog,
+                getLogger(), metrics, getConfig().getLong("bans.batch_window_ms", 500));
+        // Shared by every Discord session, so a reload does not reset anyone's allowance
+        commandAdmission = new CommandAdmission(getConfig().getInt("discord.rate_limit.burst", 5),
+                getConfig().getDouble("discord.rate_limit.per_minute", 10),
+                getConfig().getInt("discord.rate_limit.max_concurrent", 32), metrics);
 
         getLogger().info("WingSync Enabling...");
 
+        // Storage loads in the background; commands that arrive first are turned away
+        storageReady = storageExecutor.supply(this::setupStorage);
+        storageReady.whenComplete((loaded, error) -> {
+            if (error != null) {
+                getLogger().severe("Failed to set up storage: " + error.getMessage());
+            }
+        });
+
+        migrateCommand = new MigrateCommand(this);
+        getCommand("wsmigrate").setExecutor(migrateCommand);
+        getCommand("wsmigrate").setTabCompleter(migrateCommand);
+        getCommand("wsreload").setExecutor(new ReloadCommand(this));
+
+        if (getConfig().getBoolean("enforcement.enabled", false)) {
+            startLinkEnforcement();
+        }
+        if (getConfig().getBoolean("discord.member_sync.enabled", true)) {
+            startMemberSync();
+        }
+
         // Register CloveLib listener for ban events
         if (Bukkit.getPluginManager().getPlugin("CloveLib") != null) {
             getServer().getPluginManager().registerEvents(new CloveLibListener(this), this);
@@ -96,452 +156,547 @@ public class Main extends JavaPlugin {
             return;
         }
 
-        try {
-            jda = JDABuilder.createDefault(token)
-                    .enableIntents(GatewayIntent.GUILD_MEMBERS)
-                    .addEventListeners(new DiscordSlashCommandListener())
-                    .setAutoReconnect(true)
-                    .build();
-
-            jda.awaitReady();
-            getLogger().info("Discord bot connected successfully!");
-        } catch (InterruptedException e) {
-            getLogger().severe("Failed to connect Discord bot: " + e.getMessage());
-            Bukkit.getPluginManager().disablePlugin(this);
-        }
-    }
+        commandListener = createCommandListener();
 
-    @Override
-    public void onDisable() {
-        if (useMysql) {
-            closeDatabaseConnection();
+        if (getConfig().getBoolean("network.enabled", false)) {
+            // The bot starts once this server wins the Discord lease
+            storageReady.thenAccept(this::startNetworkSync);
         } else {
-            saveFileData();
+            startDiscordBot();
         }
-
-        if (jda != null) {
-            jda.shutdown();
-            try {
-                if (!jda.awaitShutdown(10, TimeUnit.SECONDS)) {
-                    jda.shutdownNow();
-                }
-            } catch (InterruptedException e) {
-                getLogger().warning("Discord bot shutdown interrupted: " + e.getMessage());
-                jda.shutdownNow();
-            }
-        }
-        getLogger().info("WingSync Disabled");
     }
 
-    private void setupFileStorage() {
-        dataFile = new File(getDataFolder(), "playerdata.json");
-        if (!getDataFolder().exists()) {
-            getDataFolder().mkdirs();
+    private void startLinkEnforcement() {
+        boolean requireMember = getConfig().getBoolean("enforcement.require_guild_member", false);
+        String guildId = getConfig().getString("discord.guild_id", "");
+        if (requireMember && (guildId == null || guildId.isBlank())) {
+            getLogger().warning("enforcement.require_guild_member needs discord.guild_id. Only a link will be required.");
+            requireMember = false;
         }
-        loadFileData();
+
+        linkGate = new LinkGate(storageExecutor, this::getStorage,
+                requireMember ? new DiscordMembershipLookup(this::getDiscordBot, () -> getConfig().getString("discord.guild_id")) : null,
+                getLogger(), metrics,
+                getConfig().getLong("enforcement.timeout_ms", 500),
+                getConfig().getBoolean("enforcement.allow_on_timeout", true),
+                TimeUnit.SECONDS.toMillis(getConfig().getLong("enforcement.membership_ttl_seconds", 600)),
+                TimeUnit.SECONDS.toMillis(getConfig().getLong("enforcement.refresh_seconds", 300)));
+        storageReady.thenRun(linkGate::start);
+        getServer().getPluginManager().registerEvents(new LoginListener(linkGate,
+                () -> getConfig().getString("enforcement.not_linked_message"),
+                () -> getConfig().getString("enforcement.not_member_message")), this);
+        getLogger().info("Link enforcement enabled" + (requireMember ? " with guild membership checks." : "."));
     }
 
-    private void loadFileData() {
-        if (!dataFile.exists()) {
+    private void startMemberSync() {
+        String guildId = getConfig().getString("discord.guild_id", "");
+        if (guildId == null || guildId.isBlank()) {
+            getLogger().info("discord.guild_id is not set, so players are not unlinked when they leave the Discord server.");
             return;
         }
 
-        try {
-            String json = Files.readString(dataFile.toPath());
-            Type type = new TypeToken<Map<String, PlayerData>>(){}.getType();
-            Map<String, PlayerData> loadedData = gson.fromJson(json, type);
-            if (loadedData != null) {
-                playerDataMap = loadedData;
-            }
-            getLogger().info("Loaded " + playerDataMap.size() + " player records from file.");
-        } catch (IOException e) {
-            getLogger().warning("Failed to load player data from file: " + e.getMessage());
-        }
+        memberSync = new GuildMemberSync(this::getDiscordBot, () -> getConfig().getString("discord.guild_id"),
+                storageExecutor, this::getStorage, whitelistQueue, auditLog,
+                discordId -> {
+                    if (linkGate != null) {
+                        linkGate.unlinked(discordId);
+                    }
+                },
+                getLogger(), metrics,
+                TimeUnit.MINUTES.toMillis(getConfig().getLong("discord.member_sync.interval_minutes", 360)));
+        storageReady.thenRun(memberSync::start);
     }
 
-    private void saveFileData() {
-        try {
-            String json = gson.toJson(playerDataMap);
-            try (FileWriter writer = new FileWriter(dataFile)) {
-                writer.write(json);
-            }
-            getLogger().info("Saved " + playerDataMap.size() + " player records to file.");
-        } catch (IOException e) {
-            getLogger().warning("Failed to save player data to file: " + e.getMessage());
-        }
+    @Override
+    public FileConfiguration getConfig() {
+        // Set by /wsreload, which reads config.yml off the server thread
+        FileConfiguration current = config;
+        return current != null ? current : super.getConfig();
     }
 
-    private void setupDatabase() {
-        String host = getConfig().getString("mysql.host");
-        String database = getConfig().getString("mysql.database");
-        String username = getConfig().getString("mysql.username");
-        String password = getConfig().getString("mysql.password");
-        int port = getConfig().getInt("mysql.port");
-
-        String url = "jdbc:mysql://" + host + ":" + port + "/" + database + "?useSSL=false";
-        try {
-            connection = DriverManager.getConnection(url, username, password);
-            getLogger().info("Connected to MySQL database!");
-            initializeTables();
-        } catch (SQLException e) {
-            getLogger().severe("Could not connect to MySQL database: " + e.getMessage());
-            getLogger().info("Falling back to file-based storage...");
-            useMysql = false;
-            setupFileStorage();
-        }
+    private DiscordSlashCommandListener createCommandListener() {
+        return new DiscordSlashCommandListener(this::getStorage, storageExecutor, uuidResolver,
+                whitelistQueue, whitelistSnapshot, banProcessor,
+                new WhitelistReconciler(storageExecutor, this::getStorage, whitelistQueue, auditLog, getLogger()), commandAdmission,
+                () -> new LinkPolicy(getConfig().getInt("links.max_per_user", 0),
+                        getConfig().getBoolean("links.claim_protection", true)),
+                auditLog,
+                metrics, getLogger(),
+                () -> getConfig().getString("discord.admin_id"));
     }
 
-    private void initializeTables() {
-        String sql = "CREATE TABLE IF NOT EXISTS discord_whitelist ("
-                + "uuid VARCHAR(36) PRIMARY KEY,"
-                + "username VARCHAR(50) NOT NULL,"
-                + "discord_id VARCHAR(20) NOT NULL,"
-                + "discord_username VARCHAR(50) NOT NULL,"
-                + "linked_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.execute();
-            getLogger().info("Whitelist table initialized.");
-        } catch (SQLException e) {
-            getLogger().severe("Failed to initialize tables: " + e.getMessage());
-        }
+    private DiscordBot createDiscordBot(FileConfiguration config, DiscordSlashCommandListener listener) {
+        CommandRegistrar registrar = new CommandRegistrar(getDataFolder().toPath().resolve("commands.sha256"),
+                config.getString("discord.guild_id", ""), config.getBoolean("discord.commands.guild_only", false),
+                getLogger(), metrics);
+        return new DiscordBot(config.getString("discord.token"), getLogger(),
+                config.getInt("discord.connect.max_attempts", 5),
+                config.getLong("discord.connect.ready_timeout_seconds", 60),
+                memberSync != null ? new Object[]{listener, registrar, memberSync} : new Object[]{listener, registrar});
     }
 
-    private void closeDatabaseConnection() {
-        if (connection != null) {
-            try {
-                connection.close();
-                getLogger().info("Database connection closed.");
-            } catch (SQLException e) {
-                getLogger().warning("Failed to close database connection: " + e.getMessage());
-            }
+    /**
+     * Connects in the background so a slow or unavailable gateway never delays startup.
+     */
+    private synchronized void startDiscordBot() {
+        if (discordBot != null) {
+            return;
         }
+        discordBot = createDiscordBot(getConfig(), commandListener);
+        discordBot.start();
     }
 
-    private boolean isConnected() {
-        try {
-            return connection != null && !connection.isClosed();
-        } catch (SQLException e) {
-            return false;
+    private synchronized void stopDiscordBot() {
+        if (discordBot != null) {
+            discordBot.shutdown();
+            discordBot = null;
         }
     }
 
-    public Connection getDatabaseConnection() {
-        if (useMysql && !isConnected()) {
-            setupDatabase();
+    private void startNetworkSync(StorageBackend backend) {
+        if (!(unwrap(backend) instanceof MySqlStorage mySqlStorage)) {
+            getLogger().warning("Network mode needs MySQL storage. Running as a standalone server.");
+            startDiscordBot();
+            return;
         }
-        return connection;
-    }
 
-    // Data access methods that work with both storage types
-    private void storePlayerData(String uuid, String username, String discordId, String discordUsername) {
-        if (useMysql) {
-            try (PreparedStatement stmt = getDatabaseConnection().prepareStatement(
-                    "REPLACE INTO discord_whitelist (uuid, discord_id, discord_username, username) VALUES (?, ?, ?, ?)")) {
-                stmt.setString(1, uuid);
-                stmt.setString(2, discordId);
-                stmt.setString(3, discordUsername);
-                stmt.setString(4, username);
-                stmt.executeUpdate();
-            } catch (SQLException e) {
-                getLogger().warning("MySQL Error: " + e.getMessage());
-                throw new RuntimeException("Database error", e);
-            }
-        } else {
-            playerDataMap.put(uuid, new PlayerData(uuid, username, discordId, discordUsername));
-            saveFileData();
+        long current = generation;
+        networkSync = new NetworkSync(mySqlStorage.getDataSource(), nodeId,
+                getDataFolder().toPath().resolve("network-version.txt"), whitelistQueue, getLogger(), metrics,
+                getConfig().getLong("network.poll_interval_ms", 2000),
+                getConfig().getInt("network.batch_size", 500),
+                getConfig().getInt("network.lease_seconds", 15),
+                getConfig().getInt("network.retention_hours", 168),
+                leader -> {
+                    if (current != generation) {
+                        // Replaced by /wsreload
+                        return;
+                    }
+                    if (leader) {
+                        startDiscordBot();
+                    } else {
+                        stopDiscordBot();
+                    }
+                });
+        if (backend instanceof InstrumentedStorage instrumented
+                && instrumented.getDelegate() instanceof CachingStorage cache) {
+            // Another server's write makes whatever this one cached about the player stale
+            networkSync.addChangeListener(change -> cache.invalidateRemote(change.uuid(), change.username(),
+                    change.discordId(), change.previousDiscordId()));
         }
+        networkSync.addChangeListener(change -> linkChanged(change.uuid()));
+        networkSync.start();
     }
 
-    private void removePlayerData(String uuid) {
-        if (useMysql) {
-            try (PreparedStatement stmt = getDatabaseConnection().prepareStatement(
-                    "DELETE FROM discord_whitelist WHERE uuid = ?")) {
-                stmt.setString(1, uuid);
-                stmt.executeUpdate();
-            } catch (SQLException e) {
-                getLogger().warning("MySQL Error: " + e.getMessage());
-                throw new RuntimeException("Database error", e);
-            }
-        } else {
-            playerDataMap.remove(uuid);
-            saveFileData();
+    private String resolveNodeId(FileConfiguration config) {
+        String configured = config.getString("network.node_id", "");
+        if (configured != null && !configured.isBlank()) {
+            return configured;
+        }
+        try {
+            return InetAddress.getLocalHost().getHostName() + ":" + getServer().getPort();
+        } catch (UnknownHostException e) {
+            return "server-" + getServer().getPort();
         }
     }
 
     /**
-     * Remove player data by username (used by CloveLib ban integration)
-     * @param username The Minecraft username to remove
+     * Re-read config.yml and switch to a new storage backend and Discord session.
+     *
+     * The new instances are built and connected on a storage thread while the
+     * old ones keep serving. The server thread is used only to swap the
+     * references. Afterwards the old session stops taking commands, the ones
+     * it is running are allowed to finish, and the old instances are closed.
+     *
+     * @param progress Told what the reload is doing as it goes
+     * @return A future completed once the old instances are closed
      */
-    public void removePlayerDataByName(String username) {
-        if (useMysql) {
-            try (PreparedStatement stmt = getDatabaseConnection().prepareStatement(
-                    "DELETE FROM discord_whitelist WHERE username = ?")) {
-                stmt.setString(1, username);
-                stmt.executeUpdate();
-            } catch (SQLException e) {
-                getLogger().warning("MySQL Error: " + e.getMessage());
-                throw new RuntimeException("Database error", e);
-            }
-        } else {
-            // Find and remove by username
-            String uuidToRemove = null;
-            for (Map.Entry<String, PlayerData> entry : playerDataMap.entrySet()) {
-                if (entry.getValue().username.equalsIgnoreCase(username)) {
-                    uuidToRemove = entry.getKey();
-                    break;
-                }
-            }
-            if (uuidToRemove != null) {
-                playerDataMap.remove(uuidToRemove);
-                saveFileData();
-            }
+    public CompletableFuture<Void> reload(Consumer<String> progress) {
+        if (storage == null && !storageReady.isCompletedExceptionally()) {
+            return CompletableFuture.failedFuture(new IllegalStateException("WingSync is still starting up"));
         }
+        if (migrateCommand.isRunning()) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Wait for /wsmigrate to finish first"));
+        }
+        if (!reloading.compareAndSet(false, true)) {
+            return CompletableFuture.failedFuture(new IllegalStateException("A reload is already running"));
+        }
+
+        return storageExecutor.supply(() -> prepareReload(progress))
+                .thenCompose(next -> storageExecutor.onMainThread(() -> swap(next))
+                        .thenAcceptAsync(old -> retire(old, next, progress), storageExecutor.executor()))
+                .whenComplete((ignored, error) -> reloading.set(false));
     }
 
-    private List<String> getUsernamesByDiscordId(String discordId) {
-        List<String> usernames = new ArrayList<>();
+    public boolean isReloading() {
+        return reloading.get();
+    }
 
-        if (useMysql) {
-            try (PreparedStatement stmt = getDatabaseConnection().prepareStatement(
-                    "SELECT username FROM discord_whitelist WHERE discord_id = ?")) {
-                stmt.setString(1, discordId);
-                ResultSet rs = stmt.executeQuery();
-                while (rs.next()) {
-                    usernames.add(rs.getString("username"));
-                }
-            } catch (SQLException e) {
-                getLogger().warning("MySQL Error: " + e.getMessage());
-                throw new RuntimeException("Database error", e);
+    private Services prepareReload(Consumer<String> progress) {
+        FileConfiguration next = loadConfigFile();
+        String token = next.getString("discord.token");
+        if (token == null || token.isEmpty()) {
+            throw new IllegalStateException("Discord token is not set in config.yml");
+        }
+
+        String nextNodeId = next.getBoolean("network.enabled", false) ? resolveNodeId(next) : null;
+        StorageBackend current = storage;
+        StorageBackend backend;
+        if (!next.getBoolean(mysqlPath(next) + "enabled", false) && unwrap(current) instanceof FileStorage) {
+            // Two file stores must never share the data folder, so the loaded one is kept
+            progress.accept("Keeping the loaded file storage. Changes to storage.file apply after a restart.");
+            backend = current;
+        } else if (next.getBoolean(mysqlPath(next) + "enabled", false)) {
+            progress.accept("Connecting to MySQL...");
+            try {
+                backend = wrap(openMySqlStorage(next, nextNodeId), next);
+            } catch (SQLException | RuntimeException e) {
+                // Unlike at startup, keep the working backend rather than fall back to files
+                throw new IllegalStateException("Could not connect to MySQL database: " + e.getMessage(), e);
             }
         } else {
-            for (PlayerData data : playerDataMap.values()) {
-                if (data.discordId.equals(discordId)) {
-                    usernames.add(data.username);
-                }
+            progress.accept("Loading file storage...");
+            backend = wrap(openFileStorage(next), next);
+        }
+
+        AuditStore audit = null;
+        if (backend != current) {
+            try {
+                audit = openAuditStore(next, backend);
+            } catch (IOException e) {
+                backend.close();
+                throw new IllegalStateException("Could not open the link history: " + e.getMessage(), e);
             }
         }
 
-        return usernames;
-    }
+        boolean network = nextNodeId != null && unwrap(backend) instanceof MySqlStorage;
+        if (nextNodeId != null && !network) {
+            getLogger().warning("Network mode needs MySQL storage. Running as a standalone server.");
+        }
 
-    private String getDiscordUsernameByMinecraftUsername(String username) {
-        if (useMysql) {
-            try (PreparedStatement stmt = getDatabaseConnection().prepareStatement(
-                    "SELECT discord_username FROM discord_whitelist WHERE username = ?")) {
-                stmt.setString(1, username);
-                ResultSet rs = stmt.executeQuery();
-                if (rs.next()) {
-                    return rs.getString("discord_username");
-                }
-            } catch (SQLException e) {
-                getLogger().warning("MySQL Error: " + e.getMessage());
-                throw new RuntimeException("Database error", e);
-            }
-        } else {
-            for (PlayerData data : playerDataMap.values()) {
-                if (data.username.equalsIgnoreCase(username)) {
-                    return data.discordUsername;
+        DiscordSlashCommandListener listener = createCommandListener();
+        // The old session keeps answering until swap() hands over
+        listener.setAccepting(false);
+        DiscordBot bot = null;
+        if (!network) {
+            progress.accept("Connecting the new Discord session...");
+            bot = createDiscordBot(next, listener);
+            bot.start();
+            try {
+                bot.whenReady().join();
+            } catch (CompletionException e) {
+                bot.shutdown();
+                if (backend != current) {
+                    audit.close();
+                    backend.close();
                 }
+                throw new IllegalStateException("The new Discord session could not connect", e);
             }
         }
+        return new Services(next, nextNodeId, backend, audit, listener, bot, null, network);
+    }
 
-        return null;
+    /**
+     * Runs on the server thread and only swaps references.
+     * @return The services that were replaced
+     */
+    private synchronized Services swap(Services next) {
+        Services old = new Services(getConfig(), nodeId, storage, null, commandListener, discordBot, networkSync,
+                networkSync != null);
+        generation++;
+        config = next.config();
+        nodeId = next.nodeId();
+        storage = next.storage();
+        storageReady = CompletableFuture.completedFuture(next.storage());
+        if (next.audit() != null) {
+            // Written to in order, so nothing recorded before the swap goes to the new store
+            auditLog.setStore(next.audit());
+        }
+        if (commandListener != null) {
+            commandListener.setAccepting(false);
+        }
+        commandListener = next.listener();
+        commandListener.setAccepting(true);
+        discordBot = next.bot();
+        networkSync = null;
+        return old;
     }
 
-    private String getDiscordIdByUuid(String uuid) {
-        if (useMysql) {
-            try (PreparedStatement stmt = getDatabaseConnection().prepareStatement(
-                    "SELECT discord_id FROM discord_whitelist WHERE uuid = ?")) {
-                stmt.setString(1, uuid);
-                ResultSet rs = stmt.executeQuery();
-                if (rs.next()) {
-                    return rs.getString("discord_id");
+    private void retire(Services old, Services next, Consumer<String> progress) {
+        if (old.networkSync() != null) {
+            // Releases the lease, so the new NetworkSync can take it straight away
+            old.networkSync().close();
+        }
+        if (next.network()) {
+            startNetworkSync(next.storage());
+        }
+
+        if (old.listener() != null) {
+            progress.accept("Waiting for running commands to finish...");
+            old.listener().drain(30, TimeUnit.SECONDS).join();
+        }
+        if (old.bot() != null) {
+            old.bot().shutdown();
+        }
+
+        if (old.storage() != null && old.storage() != storage) {
+            try {
+                if (old.storage() instanceof InstrumentedStorage instrumented
+                        && !instrumented.awaitIdle(10, TimeUnit.SECONDS)) {
+                    getLogger().warning("Closing the old storage backend with operations still running.");
                 }
-            } catch (SQLException e) {
-                getLogger().warning("MySQL Error: " + e.getMessage());
-                throw new RuntimeException("Database error", e);
-            }
-        } else {
-            PlayerData data = playerDataMap.get(uuid);
-            return data != null ? data.discordId : null;
-        }
-
-        return null;
-    }
-
-    public class DiscordSlashCommandListener extends ListenerAdapter {
-
-        @Override
-        public void onReady(ReadyEvent event) {
-            // Register slash commands when bot is ready
-            event.getJDA().updateCommands().addCommands(
-                    Commands.slash("register", "WingSync: Add a player to the Minecraft server whitelist")
-                            .addOption(OptionType.STRING, "player", "The Minecraft username to add to whitelist", true),
-
-                    Commands.slash("remove", "WingSync: Remove a player from the Minecraft server whitelist")
-                            .addOption(OptionType.STRING, "player", "The Minecraft username to remove from whitelist", true),
-
-                    Commands.slash("listwhitelist", "WingSync: Display all players currently on the whitelist"),
-
-                    Commands.slash("whois", "WingSync: Find which Minecraft accounts are linked to a Discord user")
-                            .addOption(OptionType.USER, "user", "The Discord user to check", true),
-
-                    Commands.slash("whomc", "WingSync: Find which Discord user is linked to a Minecraft username")
-                            .addOption(OptionType.STRING, "username", "The Minecraft username to check", true),
-
-                    Commands.slash("storage", "WingSync: Check the current storage method being used")
-            ).queue(success -> {
-                getLogger().info("Successfully registered WingSync slash commands!");
-            }, error -> {
-                getLogger().severe("Failed to register WingSync slash commands: " + error.getMessage());
-            });
-        }
-
-        @Override
-        public void onSlashCommandInteraction(SlashCommandInteractionEvent event) {
-            switch (event.getName()) {
-                case "whois":
-                    handleWhoisCommand(event);
-                    break;
-                case "whomc":
-                    handleWhomcCommand(event);
-                    break;
-                case "register":
-                    handleWhitelistCommand(event);
-                    break;
-                case "remove":
-                    handleUnwhitelistCommand(event);
-                    break;
-                case "listwhitelist":
-                    handleListWhitelistCommand(event);
-                    break;
-                case "storage":
-                    handleStorageCommand(event);
-                    break;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
+            old.storage().close();
         }
+        getLogger().info("WingSync reloaded.");
+    }
 
-        private void handleStorageCommand(SlashCommandInteractionEvent event) {
-            String storageType = useMysql ? "MySQL Database" : "File-based Storage";
-            String details = useMysql ?
-                    "Connected to: " + getConfig().getString("mysql.host") + ":" + getConfig().getInt("mysql.port") :
-                    "Data file: " + dataFile.getName() + " (" + playerDataMap.size() + " records)";
+    /**
+     * Read config.yml the way {@link JavaPlugin#reloadConfig()} does, into a new object.
+     */
+    private FileConfiguration loadConfigFile() {
+        YamlConfiguration loaded = YamlConfiguration.loadConfiguration(new File(getDataFolder(), "config.yml"));
+        InputStream defaults = getResource("config.yml");
+        if (defaults != null) {
+            loaded.setDefaults(YamlConfiguration.loadConfiguration(new InputStreamReader(defaults, StandardCharsets.UTF_8)));
+        }
+        return loaded;
+    }
 
-            event.reply("**Storage Information**\n" +
-                    "Type: " + storageType + "\n" +
-                    "Details: " + details).queue();
+    /**
+     * Measure every storage operation, and cache MySQL lookups, which each cost a round-trip.
+     */
+    private StorageBackend wrap(StorageBackend backend, FileConfiguration config) {
+        if (backend instanceof MySqlStorage) {
+            backend = new CachingStorage(backend, metrics, config.getInt(mysqlPath(config) + "cache.max_size", 10000),
+                    TimeUnit.SECONDS.toMillis(config.getLong(mysqlPath(config) + "cache.ttl_seconds", 300)));
         }
+        return new InstrumentedStorage(backend, metrics, this::linkChanged);
+    }
 
-        private void handleWhoisCommand(SlashCommandInteractionEvent event) {
-            event.deferReply().queue();
+    /**
+     * Called for every link written through the active storage, whichever command or task wrote it.
+     */
+    private void linkChanged(String uuid) {
+        LinkGate gate = linkGate;
+        if (gate != null) {
+            gate.linkChanged(uuid);
+        }
+    }
 
-            String discordId = event.getOption("user").getAsUser().getId();
+    /**
+     * @return The backend underneath any measuring or caching wrappers
+     */
+    public static StorageBackend unwrap(StorageBackend backend) {
+        if (backend instanceof InstrumentedStorage instrumented) {
+            backend = instrumented.getDelegate();
+        }
+        return backend instanceof CachingStorage cache ? cache.getDelegate() : backend;
+    }
 
+    @Override
+    public void onDisable() {
+        if (migrateCommand != null) {
+            // Stops after the current chunk; the checkpoint lets it resume later
+            migrateCommand.cancel();
+        }
+        if (storageExecutor != null) {
             try {
-                List<String> usernames = getUsernamesByDiscordId(discordId);
-                StringBuilder response = new StringBuilder("Minecraft accounts linked to <@" + discordId + ">: ");
-
-                if (!usernames.isEmpty()) {
-                    response.append(String.join(", ", usernames));
-                } else {
-                    response.append("None");
-                }
-
-                event.getHook().sendMessage(response.toString()).queue();
-            } catch (Exception e) {
-                event.getHook().sendMessage("❌ Failed to fetch data. Please try again later.").queue();
-                getLogger().severe("Error in whois command: " + e.getMessage());
+                storageExecutor.close(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                getLogger().warning("Interrupted while waiting for storage tasks: " + e.getMessage());
             }
         }
+        if (whitelistQueue != null) {
+            // After the storage tasks, which can still queue whitelist changes as they finish
+            whitelistQueue.flush();
+        }
+        if (networkSync != null) {
+            networkSync.close();
+        }
+        if (auditLog != null) {
+            // Before storage closes, as the MySQL history shares its pool
+            auditLog.close();
+        }
+        if (linkGate != null) {
+            linkGate.close();
+        }
+        if (memberSync != null) {
+            memberSync.close();
+        }
+        if (storage != null) {
+            storage.close();
+        }
 
-        private void handleWhomcCommand(SlashCommandInteractionEvent event) {
-            event.deferReply().queue();
-
-            String username = event.getOption("username").getAsString();
+        stopDiscordBot();
+        if (metricsExporter != null) {
+            metricsExporter.stop();
+        }
+        getLogger().info("WingSync Disabled");
+    }
 
+    private void startMetricsExporter() {
+        metricsExporter = new PrometheusExporter(metrics, getLogger());
+        if (getConfig().getBoolean("metrics.file.enabled", false)) {
+            getDataFolder().mkdirs();
+            metricsExporter.startFile(getDataFolder().toPath().resolve("metrics.prom"),
+                    getConfig().getLong("metrics.file.interval_seconds", 15));
+        }
+        if (getConfig().getBoolean("metrics.http.enabled", false)) {
             try {
-                String discordUsername = getDiscordUsernameByMinecraftUsername(username);
-
-                if (discordUsername != null) {
-                    event.getHook().sendMessage("**" + discordUsername + "** is linked to Minecraft username **" + username + "**").queue();
-                } else {
-                    event.getHook().sendMessage("❌ No Discord user is linked to Minecraft username **" + username + "**").queue();
-                }
-            } catch (Exception e) {
-                event.getHook().sendMessage("❌ Failed to fetch data. Please try again later.").queue();
-                getLogger().severe("Error in whomc command: " + e.getMessage());
+                metricsExporter.startHttp(getConfig().getString("metrics.http.bind", "127.0.0.1"),
+                        getConfig().getInt("metrics.http.port", 9465));
+            } catch (IOException e) {
+                getLogger().warning("Failed to start metrics endpoint: " + e.getMessage());
             }
         }
+    }
 
-        private void handleWhitelistCommand(SlashCommandInteractionEvent event) {
-            event.deferReply().queue();
-
-            String playerName = event.getOption("player").getAsString();
-            String discordId = event.getUser().getId();
-            String discordUsername = event.getUser().getAsTag();
+    private StorageBackend setupStorage() {
+        if (getConfig().getBoolean("network.enabled", false)) {
+            nodeId = resolveNodeId(getConfig());
+        }
 
-            Bukkit.getScheduler().runTask(Main.this, () -> {
-                try {
-                    OfflinePlayer player = Bukkit.getOfflinePlayer(playerName);
-                    UUID uuid = player.getUniqueId();
+        StorageBackend backend;
+        // Check if MySQL is enabled
+        if (getConfig().getBoolean(mysqlPath(getConfig()) + "enabled", false)) {
+            backend = setupDatabase();
+            getLogger().info("MySQL database enabled and configured.");
+        } else {
+            backend = setupFileStorage();
+            getLogger().info("File-based storage enabled. MySQL disabled.");
+        }
+        backend = wrap(backend, getConfig());
+        try {
+            auditLog.setStore(openAuditStore(getConfig(), backend));
+        } catch (IOException e) {
+            getLogger().severe("Could not open the link history: " + e.getMessage());
+        }
+        // Published only once it is wrapped and the history store is set
+        storage = backend;
+        return backend;
+    }
 
-                    Bukkit.dispatchCommand(Bukkit.getConsoleSender(), "whitelist add " + playerName);
+    /**
+     * The history is kept alongside the links: in MySQL, or in files next to file storage.
+     */
+    private AuditStore openAuditStore(FileConfiguration config, StorageBackend backend) throws IOException {
+        if (unwrap(backend) instanceof MySqlStorage mySqlStorage) {
+            return new MySqlAuditStore(mySqlStorage.getDataSource(), getLogger());
+        }
+        FileAuditStore fileStore = new FileAuditStore(getDataFolder(), getLogger(), config.getInt("audit.segment_size", 50000));
+        fileStore.load();
+        return fileStore;
+    }
 
-                    storePlayerData(uuid.toString(), playerName, discordId, discordUsername);
+    private StorageBackend setupFileStorage() {
+        return openFileStorage();
+    }
 
-                    event.getHook().sendMessage("✅ Player **" + playerName + "** has been added to the whitelist!").queue();
-                } catch (Exception e) {
-                    getLogger().warning("Error adding player: " + e.getMessage());
-                    event.getHook().sendMessage("❌ Failed to add player to whitelist.").queue();
-                }
-            });
+    private StorageBackend setupDatabase() {
+        try {
+            MySqlStorage mySqlStorage = openMySqlStorage();
+            getLogger().info("Connected to MySQL database!");
+            return mySqlStorage;
+        } catch (Exception e) {
+            getLogger().severe("Could not connect to MySQL database: " + e.getMessage());
+            getLogger().info("Falling back to file-based storage...");
+            return setupFileStorage();
         }
+    }
 
-        private void handleUnwhitelistCommand(SlashCommandInteractionEvent event) {
-            event.deferReply().queue();
+    /**
+     * Open and load file storage from the plugin folder, as configured.
+     */
+    public FileStorage openFileStorage() {
+        return openFileStorage(getConfig());
+    }
 
-            String playerName = event.getOption("player").getAsString();
-            String discordId = event.getUser().getId();
-            String adminDiscordId = getConfig().getString("discord.admin_id");
+    private FileStorage openFileStorage(FileConfiguration config) {
+        if (!getDataFolder().exists()) {
+            getDataFolder().mkdirs();
+        }
+        FileStorage fileStorage = new FileStorage(getDataFolder(), getLogger(), metrics,
+                config.getLong("storage.file.flush_interval_ms", 250),
+                config.getInt("storage.file.compact_after_changes", 1000),
+                config.getBoolean("storage.file.binary_snapshot", false));
+        fileStorage.load();
+        return fileStorage;
+    }
 
-            Bukkit.getScheduler().runTask(Main.this, () -> {
-                try {
-                    OfflinePlayer player = Bukkit.getOfflinePlayer(playerName);
-                    UUID uuid = player.getUniqueId();
+    /**
+     * Connect to the configured MySQL database with a new pool.
+     */
+    public MySqlStorage openMySqlStorage() throws SQLException {
+        return openMySqlStorage(getConfig(), nodeId);
+    }
 
-                    String playerDiscordId = getDiscordIdByUuid(uuid.toString());
+    private MySqlStorage openMySqlStorage(FileConfiguration config, String changeOrigin) throws SQLException {
+        String mysql = mysqlPath(config);
+        String host = config.getString(mysql + "host");
+        String database = config.getString(mysql + "database");
+        String username = config.getString(mysql + "username");
+        String password = config.getString(mysql + "password");
+        int port = config.getInt(mysql + "port");
 
-                    if (playerDiscordId != null && (playerDiscordId.equals(discordId) || discordId.equals(adminDiscordId))) {
-                        Bukkit.dispatchCommand(Bukkit.getConsoleSender(), "whitelist remove " + playerName);
-                        removePlayerData(uuid.toString());
-                        event.getHook().sendMessage("✅ Player **" + playerName + "** has been removed from the whitelist.").queue();
-                    } else {
-                        event.getHook().sendMessage("❌ You do not have permission to unwhitelist this player.").queue();
-                    }
-                } catch (Exception e) {
-                    getLogger().warning("Error removing player: " + e.getMessage());
-                    event.getHook().sendMessage("❌ Failed to remove player from whitelist.").queue();
-                }
-            });
+        String url = "jdbc:mysql://" + host + ":" + port + "/" + database + "?useSSL=false";
+        HikariDataSource dataSource = null;
+        try {
+            dataSource = new HikariDataSource(MySqlStorage.createPoolConfig(url, username, password,
+                    config.getInt(mysql + "pool.max_size", 10),
+                    config.getLong(mysql + "pool.connection_timeout_ms", 5000)));
+            // In network mode every write is also recorded for the other servers
+            return new MySqlStorage(dataSource, host + ":" + port, getLogger(), changeOrigin);
+        } catch (SQLException | RuntimeException e) {
+            if (dataSource != null) {
+                dataSource.close();
+            }
+            throw e;
         }
+    }
 
-        private void handleListWhitelistCommand(SlashCommandInteractionEvent event) {
-            event.deferReply().queue();
+    /**
+     * @return Where the MySQL settings are: the top-level mysql section, or
+     *         discord.mysql in config files written by older versions
+     */
+    private static String mysqlPath(FileConfiguration config) {
+        return config.contains("discord.mysql", true) && !config.contains("mysql", true) ? "discord.mysql." : "mysql.";
+    }
 
-            Bukkit.getScheduler().runTask(Main.this, () -> {
-                StringBuilder response = new StringBuilder("**Whitelisted Players:**\n```\n");
-                for (OfflinePlayer player : Bukkit.getWhitelistedPlayers()) {
-                    response.append("• ").append(player.getName()).append("\n");
-                }
+    /**
+     * @return The storage backend, or null while it is still loading
+     */
+    public StorageBackend getStorage() {
+        return storage;
+    }
 
-                if (response.toString().equals("**Whitelisted Players:**\n```\n")) {
-                    response.append("No players are currently whitelisted.");
-                }
+    public CompletableFuture<StorageBackend> whenStorageReady() {
+        return storageReady;
+    }
 
-                response.append("```");
+    public WhitelistQueue getWhitelistQueue() {
+        return whitelistQueue;
+    }
 
-                event.getHook().sendMessage(response.toString()).queue();
-            });
-        }
+    public BanProcessor getBanProcessor() {
+        return banProcessor;
+    }
+
+    public UuidResolver getUuidResolver() {
+        return uuidResolver;
+    }
+
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    public DiscordBot getDiscordBot() {
+        return discordBot;
+    }
+
+    public StorageExecutor getStorageExecutor() {
+        return storageExecutor;
     }
-}
\ No newline at end of file
+}
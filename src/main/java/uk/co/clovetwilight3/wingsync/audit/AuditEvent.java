@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2025 Clove Twilight
+ * Licensed under the MIT License
+ * WingSync
+ */
+
+package uk.co.clovetwilight3.wingsync.audit;
+
+/**
+ * One change to a link, as kept in the history.
+ *
+ * @param at        When it happened, in epoch milliseconds
+ * @param action    What happened, one of the constants below
+ * @param uuid      The Minecraft account's UUID
+ * @param username  The Minecraft username at the time
+ * @param discordId The Discord user the account was linked to, or null if not known
+ * @param actor     Who made the change: a Discord ID, or a name such as "CloveLib"
+ */
+public record AuditEvent(long at, String action, String uuid, String username, String discordId, String actor) {
+
+    public static final String REGISTER = "register";
+    public static final String REMOVE = "remove";
+    /** The admin removed someone else's link. */
+    public static final String ADMIN_REMOVE = "admin_remove";
+    /** The admin moved an account to a different Discord user. */
+    public static final String TRANSFER = "transfer";
+    public static final String BAN = "ban";
+    public static final String LEFT_GUILD = "left_guild";
+    public static final String RECONCILE_IMPORT = "reconcile_import";
+    public static final String RECONCILE_REMOVE = "reconcile_remove";
+
+    public static final String ACTOR_CLOVELIB = "CloveLib";
+    public static final String ACTOR_DISCORD = "Discord";
+
+    public static AuditEvent now(String action, String uuid, String username, String discordId, String actor) {
+        return new AuditEvent(System.currentTimeMillis(), action, uuid, username, discordId, actor);
+    }
+}
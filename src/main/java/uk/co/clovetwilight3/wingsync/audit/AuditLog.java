@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2025 Clove Twilight
+ * Licensed under the MIT License
+ * WingSync
+ */
+
+package uk.co.clovetwilight3.wingsync.audit;
+
+import uk.co.clovetwilight3.wingsync.metrics.MetricsRegistry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Records link changes in the history without slowing down the code that
+ * makes them.
+ *
+ * {@link #record(AuditEvent)} only queues the entry. A background thread
+ * writes queued entries to the current {@link AuditStore} in batches, either
+ * on a timer or as soon as a full batch is waiting. Entries that fail to
+ * write are retried with the next batch. If the queue grows past its limit,
+ * new entries are dropped and counted rather than using unbounded memory.
+ */
+public class AuditLog {
+
+    private final Logger logger;
+    private final MetricsRegistry metrics;
+    private final int batchSize;
+    private final int maxPending;
+    private final ConcurrentLinkedQueue<AuditEvent> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final AtomicBoolean warnedFull = new AtomicBoolean();
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "WingSync-Audit");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Only touched from the writer thread
+    private AuditStore store;
+    private final List<AuditEvent> unsent = new ArrayList<>();
+
+    /**
+     * @param flushIntervalMillis How often queued entries are written
+     * @param batchSize           How many entries are written together at most
+     * @param maxPending          How many entries may wait to be written before new ones are dropped
+     */
+    public AuditLog(Logger logger, MetricsRegistry metrics, long flushIntervalMillis, int batchSize, int maxPending) {
+        this.logger = logger;
+        this.metrics = metrics;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxPending = Math.max(this.batchSize, maxPending);
+        metrics.help("wingsync_audit_events_total", "Link changes written to the history");
+        metrics.help("wingsync_audit_dropped_total", "Link changes left out of the history because too many were waiting");
+        metrics.gauge("wingsync_audit_pending", "", () -> pendingCount.get());
+        writer.scheduleWithFixedDelay(this::flush, flushIntervalMillis, Math.max(1, flushIntervalMillis), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queue an entry for the history. Safe to call from any thread, and never blocks.
+     */
+    public void record(AuditEvent event) {
+        if (pendingCount.incrementAndGet() > maxPending) {
+            pendingCount.decrementAndGet();
+            metrics.counter("wingsync_audit_dropped_total", "").increment();
+            if (warnedFull.compareAndSet(false, true)) {
+                logger.warning("The history is not keeping up; some link changes will be missing from it.");
+            }
+            return;
+        }
+        pending.add(event);
+
+        if (pendingCount.get() >= batchSize && flushRequested.compareAndSet(false, true)) {
+            writer.execute(this::flush);
+        }
+    }
+
+    /**
+     * Write to a different store from now on, e.g. after /wsreload switched
+     * storage backends. Whatever is queued is written to the old store first,
+     * and the old store is closed.
+     */
+    public void setStore(AuditStore next) {
+        writer.execute(() -> {
+            flush();
+            if (store != null) {
+                store.close();
+            }
+            store = next;
+            flush();
+        });
+    }
+
+    /**
+     * @return Matching history entries, newest first, including everything recorded so far
+     */
+    public CompletableFuture<List<AuditEvent>> query(AuditQuery query) {
+        return CompletableFuture.supplyAsync(() -> {
+            flush();
+            if (store == null) {
+                throw new IllegalStateException("The history is still loading");
+            }
+            return store.query(query);
+        }, writer);
+    }
+
+    /**
+     * Write everything still queued and close the store.
+     */
+    public void close() {
+        writer.execute(() -> {
+            flush();
+            if (!unsent.isEmpty()) {
+                logger.warning(unsent.size() + " link changes could not be written to the history.");
+            }
+            if (store != null) {
+                store.close();
+                store = null;
+            }
+        });
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(5, TimeUnit.SECONDS)) {
+                writer.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            writer.shutdownNow();
+        }
+    }
+
+    private void flush() {
+        flushRequested.set(false);
+        if (store == null) {
+            // Storage is still loading; keep everything queued until it has
+            return;
+        }
+
+        while (true) {
+            while (unsent.size() < batchSize) {
+                AuditEvent event = pending.poll();
+                if (event == null) {
+                    break;
+                }
+                pendingCount.decrementAndGet();
+                unsent.add(event);
+            }
+            if (unsent.isEmpty()) {
+                return;
+            }
+
+            long start = System.nanoTime();
+            try {
+                store.append(unsent);
+            } catch (RuntimeException e) {
+                // Kept in unsent and tried again on the next flush
+                logger.warning("Failed to write " + unsent.size() + " link changes to the history: " + e.getMessage());
+                return;
+            }
+            metrics.histogram("wingsync_audit_flush_seconds", "").recordSince(start);
+            metrics.counter("wingsync_audit_events_total", "").add(unsent.size());
+            unsent.clear();
+            warnedFull.set(false);
+        }
+    }
+}
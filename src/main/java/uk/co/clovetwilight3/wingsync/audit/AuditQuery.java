@@ -0,0 +1,24 @@
+/*
+ * Copyright (c) 2025 Clove Twilight
+ * Licensed under the MIT License
+ * WingSync
+ */
+
+package uk.co.clovetwilight3.wingsync.audit;
+
+/**
+ * What to look up in the history. Null fields match anything.
+ *
+ * @param from  Earliest time to include, in epoch milliseconds
+ * @param to    Latest time to include, in epoch milliseconds
+ * @param limit Most entries to return, newest first
+ */
+public record AuditQuery(String uuid, String username, String discordId, long from, long to, int limit) {
+
+    public boolean matches(AuditEvent event) {
+        return event.at() >= from && event.at() <= to
+                && (uuid == null || uuid.equals(event.uuid()))
+                && (username == null || username.equalsIgnoreCase(event.username()))
+                && (discordId == null || discordId.equals(event.discordId()));
+    }
+}
@@ -0,0 +1,25 @@
+/*
+ * Copyright (c) 2025 Clove Twilight
+ * Licensed under the MIT License
+ * WingSync
+ */
+
+package uk.co.clovetwilight3.wingsync.audit;
+
+import java.util.List;
+
+/**
+ * Where the history is kept. Only ever used from the {@link AuditLog} writer
+ * thread, so implementations need not be thread-safe.
+ */
+public interface AuditStore {
+
+    void append(List<AuditEvent> events);
+
+    /**
+     * @return Matching entries, newest first
+     */
+    List<AuditEvent> query(AuditQuery query);
+
+    void close();
+}
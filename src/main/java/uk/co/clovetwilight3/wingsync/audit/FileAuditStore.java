@@ -0,0 +1,440 @@
+/*
+ * Copyright (c) 2025 Clove Twilight
+ * Licensed under the MIT License
+ * WingSync
+ */
+
+package uk.co.clovetwilight3.wingsync.audit;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import uk.co.clovetwilight3.wingsync.util.TtlCache;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the history as append-only segment files in plugins/WingSync/history.
+ *
+ * Each segment holds up to a fixed number of entries, one JSON object per
+ * line, and is named after the time of its first entry. Once full it is
+ * sealed with an index file mapping each player and Discord user to the
+ * offsets of their entries. Lookups only open the segments overlapping the
+ * requested time range and read just the indexed lines, so they do not
+ * scan the whole history.
+ */
+public class FileAuditStore implements AuditStore {
+
+    private static final String SEGMENT_PREFIX = "history-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final Type INDEX_TYPE = new TypeToken<Map<String, long[]>>() { }.getType();
+
+    // An entry in a batch that is not on disk yet, and where it will be
+    private record Pending(AuditEvent event, long offset) {
+    }
+
+    private final Path dir;
+    private final Logger logger;
+    private final int segmentSize;
+    private final Gson gson = new Gson();
+    // Segment start time -> file, oldest first
+    private final TreeMap<Long, Path> segments = new TreeMap<>();
+    private final TtlCache<Long, Map<String, long[]>> sealedIndexes = new TtlCache<>(8, TimeUnit.MINUTES.toMillis(10));
+
+    // The segment being appended to, if any
+    private long activeStart = -1;
+    private FileChannel active;
+    private long activePosition;
+    private int activeCount;
+    private Map<String, List<Long>> activeIndex = new HashMap<>();
+
+    /**
+     * @param segmentSize How many entries a segment holds before a new one is started
+     */
+    public FileAuditStore(File dataFolder, Logger logger, int segmentSize) {
+        this.dir = dataFolder.toPath().resolve("history");
+        this.logger = logger;
+        this.segmentSize = Math.max(1, segmentSize);
+    }
+
+    /**
+     * Find the existing segments, index any that were sealed without one and
+     * reopen the newest for appending.
+     */
+    public void load() throws IOException {
+        Files.createDirectories(dir);
+        try (Stream<Path> files = Files.list(dir)) {
+            files.filter(file -> isSegment(file.getFileName().toString()))
+                    .forEach(file -> segments.put(segmentStart(file), file));
+        }
+
+        Long newest = segments.isEmpty() ? null : segments.lastKey();
+        for (Map.Entry<Long, Path> segment : segments.entrySet()) {
+            if (!segment.getKey().equals(newest) && !Files.exists(indexFile(segment.getValue()))) {
+                writeIndex(segment.getValue(), freeze(scan(segment.getValue())));
+            }
+        }
+        if (newest != null) {
+            reopen(newest);
+        }
+    }
+
+    @Override
+    public void append(List<AuditEvent> events) {
+        try {
+            ByteArrayOutputStream batch = new ByteArrayOutputStream();
+            List<Pending> pending = new ArrayList<>();
+            for (AuditEvent event : events) {
+                if (active == null || activeCount + pending.size() >= segmentSize) {
+                    writeBatch(batch, pending);
+                    startSegment(event.at());
+                }
+                pending.add(new Pending(event, activePosition + batch.size()));
+                batch.write(gson.toJson(event).getBytes(StandardCharsets.UTF_8));
+                batch.write('\n');
+            }
+            writeBatch(batch, pending);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public List<AuditEvent> query(AuditQuery query) {
+        String key = query.uuid() != null ? uuidKey(query.uuid())
+                : query.discordId() != null ? discordKey(query.discordId())
+                : query.username() != null ? nameKey(query.username())
+                : null;
+
+        List<AuditEvent> results = new ArrayList<>();
+        long nextStart = Long.MAX_VALUE;
+        try {
+            // Newest segment first; each one covers up to the start of the next
+            for (Map.Entry<Long, Path> segment : segments.descendingMap().entrySet()) {
+                long start = segment.getKey();
+                long end = nextStart;
+                nextStart = start;
+                if (start > query.to()) {
+                    continue;
+                }
+                if (end <= query.from()) {
+                    break;
+                }
+
+                List<AuditEvent> found = key != null
+                        ? readAt(segment.getValue(), offsets(start, segment.getValue(), key))
+                        : readAll(segment.getValue());
+                for (int i = found.size() - 1; i >= 0; i--) {
+                    if (query.matches(found.get(i))) {
+                        results.add(found.get(i));
+                        if (results.size() >= query.limit()) {
+                            return results;
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return results;
+    }
+
+    @Override
+    public void close() {
+        if (active != null) {
+            try {
+                active.close();
+            } catch (IOException e) {
+                logger.warning("Failed to close history segment: " + e.getMessage());
+            }
+            active = null;
+        }
+    }
+
+    /**
+     * Write a batch to the active segment, then index its entries. If the
+     * write fails the segment is cut back to where it ended before, so nothing
+     * is left pointing at a partly written entry.
+     */
+    private void writeBatch(ByteArrayOutputStream batch, List<Pending> pending) throws IOException {
+        if (batch.size() == 0) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(batch.toByteArray());
+        try {
+            while (buffer.hasRemaining()) {
+                active.write(buffer);
+            }
+            active.force(false);
+        } catch (IOException e) {
+            rollBack(e);
+            throw e;
+        } finally {
+            batch.reset();
+        }
+
+        activePosition += buffer.limit();
+        for (Pending entry : pending) {
+            addToIndex(activeIndex, entry.event(), entry.offset());
+        }
+        activeCount += pending.size();
+        pending.clear();
+    }
+
+    private void rollBack(IOException cause) {
+        try {
+            active.truncate(activePosition);
+            active.position(activePosition);
+        } catch (IOException e) {
+            // The end of the segment is unknown now; leave it to be scanned on the next load
+            cause.addSuppressed(e);
+            try {
+                active.close();
+            } catch (IOException ignored) {
+                // Already failing
+            }
+            active = null;
+        }
+    }
+
+    private void startSegment(long at) throws IOException {
+        if (active != null) {
+            // Seal the full segment, so lookups read its index from disk
+            writeIndex(segments.get(activeStart), freeze(activeIndex));
+            active.close();
+        }
+
+        long start = segments.isEmpty() ? at : Math.max(at, segments.lastKey() + 1);
+        Path file = dir.resolve(SEGMENT_PREFIX + start + SEGMENT_SUFFIX);
+        segments.put(start, file);
+        active = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        activeStart = start;
+        activePosition = 0;
+        activeCount = 0;
+        activeIndex = new HashMap<>();
+    }
+
+    private void reopen(long start) throws IOException {
+        Path file = segments.get(start);
+        activeIndex = new HashMap<>();
+        activeCount = 0;
+        long end;
+        try (RandomAccessFile in = new RandomAccessFile(file.toFile(), "r")) {
+            String line;
+            long offset = 0;
+            while ((line = readLine(in, offset)) != null) {
+                AuditEvent event = parse(line);
+                if (event != null) {
+                    addToIndex(activeIndex, event, offset);
+                    activeCount++;
+                }
+                offset = in.getFilePointer();
+            }
+            end = offset;
+        }
+
+        active = FileChannel.open(file, StandardOpenOption.WRITE);
+        if (active.size() > end) {
+            // A crash cut the last entry short, leaving it without its newline
+            logger.warning("Dropping a partly written entry at the end of " + file.getFileName());
+            active.truncate(end);
+        }
+        active.position(end);
+        activeStart = start;
+        activePosition = end;
+    }
+
+    /**
+     * @return The offsets of every entry in a segment, by lookup key
+     */
+    private Map<String, List<Long>> scan(Path file) throws IOException {
+        Map<String, List<Long>> index = new HashMap<>();
+        try (RandomAccessFile in = new RandomAccessFile(file.toFile(), "r")) {
+            String line;
+            long offset = 0;
+            while ((line = readLine(in, offset)) != null) {
+                AuditEvent event = parse(line);
+                if (event != null) {
+                    addToIndex(index, event, offset);
+                }
+                offset = in.getFilePointer();
+            }
+        }
+        return index;
+    }
+
+    private long[] offsets(long start, Path file, String key) throws IOException {
+        if (start == activeStart) {
+            List<Long> offsets = activeIndex.get(key);
+            return offsets != null ? offsets.stream().mapToLong(Long::longValue).toArray() : new long[0];
+        }
+
+        Map<String, long[]> index = sealedIndexes.get(start);
+        if (index == null) {
+            try (BufferedReader reader = Files.newBufferedReader(indexFile(file), StandardCharsets.UTF_8)) {
+                index = gson.fromJson(reader, INDEX_TYPE);
+            } catch (IOException | JsonParseException e) {
+                // A missing or damaged index is rebuilt from the segment itself
+                logger.warning("Rebuilding history index for " + file.getFileName() + ": " + e.getMessage());
+                index = freeze(scan(file));
+                writeIndex(file, index);
+            }
+            sealedIndexes.put(start, index);
+        }
+        long[] offsets = index.get(key);
+        return offsets != null ? offsets : new long[0];
+    }
+
+    private List<AuditEvent> readAt(Path file, long[] offsets) throws IOException {
+        List<AuditEvent> events = new ArrayList<>(offsets.length);
+        if (offsets.length == 0) {
+            return events;
+        }
+        try (RandomAccessFile in = new RandomAccessFile(file.toFile(), "r")) {
+            for (long offset : offsets) {
+                String line = readLine(in, offset);
+                AuditEvent event = line != null ? parse(line) : null;
+                if (event != null) {
+                    events.add(event);
+                }
+            }
+        }
+        return events;
+    }
+
+    private List<AuditEvent> readAll(Path file) throws IOException {
+        List<AuditEvent> events = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                AuditEvent event = parse(line);
+                if (event != null) {
+                    events.add(event);
+                }
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Read one complete line starting at an offset, leaving the file pointer
+     * just after it.
+     * @return The line, or null at the end of the file or if the line has no newline yet
+     */
+    private static String readLine(RandomAccessFile in, long offset) throws IOException {
+        in.seek(offset);
+        ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+        byte[] buffer = new byte[256];
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            for (int i = 0; i < read; i++) {
+                if (buffer[i] == '\n') {
+                    line.write(buffer, 0, i);
+                    in.seek(offset + line.size() + 1);
+                    return line.toString(StandardCharsets.UTF_8);
+                }
+            }
+            line.write(buffer, 0, read);
+        }
+        return null;
+    }
+
+    private AuditEvent parse(String line) {
+        try {
+            AuditEvent event = gson.fromJson(line, AuditEvent.class);
+            return event != null && event.action() != null ? event : null;
+        } catch (JsonParseException e) {
+            return null;
+        }
+    }
+
+    private void writeIndex(Path segment, Map<String, long[]> index) throws IOException {
+        Path target = indexFile(segment);
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            gson.toJson(index, INDEX_TYPE, writer);
+        }
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static Map<String, long[]> freeze(Map<String, List<Long>> index) {
+        Map<String, long[]> frozen = new HashMap<>(index.size() * 2);
+        index.forEach((key, offsets) -> frozen.put(key, offsets.stream().mapToLong(Long::longValue).toArray()));
+        return frozen;
+    }
+
+    private static void addToIndex(Map<String, List<Long>> index, AuditEvent event, long offset) {
+        if (event.uuid() != null) {
+            index.computeIfAbsent(uuidKey(event.uuid()), key -> new ArrayList<>()).add(offset);
+        }
+        if (event.username() != null) {
+            index.computeIfAbsent(nameKey(event.username()), key -> new ArrayList<>()).add(offset);
+        }
+        if (event.discordId() != null) {
+            index.computeIfAbsent(discordKey(event.discordId()), key -> new ArrayList<>()).add(offset);
+        }
+    }
+
+    private static String uuidKey(String uuid) {
+        return "uuid:" + uuid;
+    }
+
+    private static String nameKey(String username) {
+        return "name:" + username.toLowerCase(Locale.ROOT);
+    }
+
+    private static String discordKey(String discordId) {
+        return "discord:" + discordId;
+    }
+
+    private static Path indexFile(Path segment) {
+        String name = segment.getFileName().toString();
+        return segment.resolveSibling(name.substring(0, name.length() - SEGMENT_SUFFIX.length()) + INDEX_SUFFIX);
+    }
+
+    private static boolean isSegment(String name) {
+        if (!name.startsWith(SEGMENT_PREFIX) || !name.endsWith(SEGMENT_SUFFIX)) {
+            return false;
+        }
+        try {
+            Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static long segmentStart(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2025 Clove Twilight
+ * Licensed under the MIT License
+ * WingSync
+ */
+
+package uk.co.clovetwilight3.wingsync.audit;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the history in the wingsync_history table, shared by every server
+ * using the database. Each batch is one multi-row insert, and every lookup
+ * is answered from an index on the player, Discord user or time.
+ */
+public class MySqlAuditStore implements AuditStore {
+
+    private final DataSource dataSource;
+    private final Logger logger;
+
+    /**
+     * @param dataSource The pool of the MySQL storage backend, which creates the table
+     */
+    public MySqlAuditStore(DataSource dataSource, Logger logger) {
+        this.dataSource = dataSource;
+        this.logger = logger;
+    }
+
+    @Override
+    public void append(List<AuditEvent> events) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "INSERT INTO wingsync_history (occurred_at, action, uuid, username, discord_id, actor) "
+                             + "VALUES (?, ?, ?, ?, ?, ?)")) {
+            for (AuditEvent event : events) {
+                stmt.setLong(1, event.at());
+                stmt.setString(2, event.action());
+                stmt.setString(3, event.uuid());
+                stmt.setString(4, event.username());
+                stmt.setString(5, event.discordId());
+                stmt.setString(6, event.actor());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        } catch (SQLException e) {
+            logger.warning("MySQL Error: " + e.getMessage());
+            throw new RuntimeException("Database error", e);
+        }
+    }
+
+    @Override
+    public List<AuditEvent> query(AuditQuery query) {
+        StringBuilder sql = new StringBuilder("SELECT occurred_at, action, uuid, username, discord_id, actor "
+                + "FROM wingsync_history WHERE occurred_at BETWEEN ? AND ?");
+        List<String> params = new ArrayList<>();
+        if (query.uuid() != null) {
+            sql.append(" AND uuid = ?");
+            params.add(query.uuid());
+        }
+        if (query.username() != null) {
+            sql.append(" AND username = ?");
+            params.add(query.username());
+        }
+        if (query.discordId() != null) {
+            sql.append(" AND discord_id = ?");
+            params.add(query.discordId());
+        }
+        sql.append(" ORDER BY occurred_at DESC, id DESC LIMIT ?");
+
+        List<AuditEvent> events = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            int index = 1;
+            stmt.setLong(index++, query.from());
+            stmt.setLong(index++, query.to());
+            for (String param : params) {
+                stmt.setString(index++, param);
+            }
+            stmt.setInt(index, query.limit());
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    events.add(new AuditEvent(rs.getLong("occurred_at"), rs.getString("action"), rs.getString("uuid"),
+                            rs.getString("username"), rs.getString("discord_id"), rs.getString("actor")));
+                }
+            }
+        } catch (SQLException e) {
+            logger.warning("MySQL Error: " + e.getMessage());
+            throw new RuntimeException("Database error", e);
+        }
+        return events;
+    }
+
+    @Override
+    public void close() {
+        // The pool belongs to the storage backend, which closes it
+    }
+}
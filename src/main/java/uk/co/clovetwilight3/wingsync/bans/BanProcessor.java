@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2025 Clove Twilight
+ * Licensed under the MIT License
+ * WingSync
+ */
+
+package uk.co.clovetwilight3.wingsync.bans;
+
+import org.bukkit.Bukkit;
+import uk.co.clovetwilight3.wingsync.audit.AuditEvent;
+import uk.co.clovetwilight3.wingsync.audit.AuditLog;
+import uk.co.clovetwilight3.wingsync.metrics.MetricsRegistry;
+import uk.co.clovetwilight3.wingsync.profile.UuidResolver;
+import uk.co.clovetwilight3.wingsync.storage.PlayerData;
+import uk.co.clovetwilight3.wingsync.storage.StorageBackend;
+import uk.co.clovetwilight3.wingsync.storage.StorageExecutor;
+import uk.co.clovetwilight3.wingsync.whitelist.WhitelistQueue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Turns a stream of ban events into batched cleanup.
+ *
+ * Banned names are collected for a short window, deduplicated
+ * case-insensitively, and then removed with one storage batch and one
+ * whitelist batch. All of it runs on the storage executor, whatever thread
+ * fired the ban event.
+ */
+public class BanProcessor {
+
+    private final StorageExecutor storageExecutor;
+    private final Supplier<CompletableFuture<StorageBackend>> storage;
+    private final WhitelistQueue whitelistQueue;
+    private final UuidResolver uuidResolver;
+    private final AuditLog audit;
+    private final Logger logger;
+    private final MetricsRegistry metrics;
+    private final long windowMillis;
+
+    // Case-folded name -> name as reported by the ban event
+    private final Map<String, String> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final AtomicLong processed = new AtomicLong();
+
+    /**
+     * @param storage      Supplies the storage backend once it has loaded
+     * @param windowMillis How long to collect bans before processing them
+     */
+    public BanProcessor(StorageExecutor storageExecutor, Supplier<CompletableFuture<StorageBackend>> storage,
+                        WhitelistQueue whitelistQueue, UuidResolver uuidResolver, AuditLog audit, Logger logger,
+                        MetricsRegistry metrics, long windowMillis) {
+        this.storageExecutor = storageExecutor;
+        this.storage = storage;
+        this.whitelistQueue = whitelistQueue;
+        this.uuidResolver = uuidResolver;
+        this.audit = audit;
+        this.logger = logger;
+        this.metrics = metrics;
+        this.windowMillis = Math.max(1, windowMillis);
+        metrics.gauge("wingsync_bans_pending", "", this::getPendingCount);
+    }
+
+    /**
+     * Queue a banned player for removal. Safe to call from any thread.
+     */
+    public void submit(String playerName) {
+        metrics.counter("wingsync_ban_events_total", "").increment();
+        pending.putIfAbsent(playerName.toLowerCase(Locale.ROOT), playerName);
+
+        if (flushScheduled.compareAndSet(false, true)) {
+            CompletableFuture.runAsync(this::flush,
+                    CompletableFuture.delayedExecutor(windowMillis, TimeUnit.MILLISECONDS, storageExecutor.executor()));
+        }
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    public long getProcessedCount() {
+        return processed.get();
+    }
+
+    private void flush() {
+        flushScheduled.set(false);
+
+        List<String> batch = new ArrayList<>();
+        for (String key : pending.keySet()) {
+            String name = pending.remove(key);
+            if (name != null) {
+                batch.add(name);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        // The stored link decides which account a name means, so the link removed, the
+        // history entry and the whitelist removal all refer to the same UUID
+        Map<String, PlayerData> linked = new LinkedHashMap<>();
+        List<String> unlinked = new ArrayList<>();
+        try {
+            // Bans can arrive while storage is still loading; wait for it rather than drop them
+            StorageBackend backend = storage.get().join();
+            // One lookup for the whole window, which also says who each player was linked to, for the history
+            Set<String> found = new HashSet<>();
+            for (PlayerData link : backend.getLinksByUsernames(batch)) {
+                linked.put(link.uuid, link);
+                found.add(link.username.toLowerCase(Locale.ROOT));
+            }
+            for (String name : batch) {
+                if (!found.contains(name.toLowerCase(Locale.ROOT))) {
+                    unlinked.add(name);
+                }
+            }
+            if (!linked.isEmpty()) {
+                backend.removePlayerDataBatch(linked.keySet());
+            }
+            for (PlayerData link : linked.values()) {
+                audit.record(AuditEvent.now(AuditEvent.BAN, link.uuid, link.username, link.discordId, AuditEvent.ACTOR_CLOVELIB));
+            }
+        } catch (Exception e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            logger.warning("Failed to remove " + batch.size() + " banned player(s) from WingSync data: " + cause.getMessage());
+            // Still take them off the whitelist
+            linked.clear();
+            unlinked.clear();
+            unlinked.addAll(batch);
+        }
+
+        for (String uuid : linked.keySet()) {
+            whitelistQueue.remove(Bukkit.getOfflinePlayer(UUID.fromString(uuid)));
+        }
+        for (String name : unlinked) {
+            // Not linked, but possibly whitelisted by hand
+            uuidResolver.resolvePlayer(name).whenComplete((player, error) -> {
+                if (error != null) {
+                    logger.warning("Failed to unwhitelist banned player " + name + ": " + error.getMessage());
+                } else if (player != null) {
+                    whitelistQueue.remove(player);
+                }
+            });
+        }
+
+        processed.addAndGet(batch.size());
+        metrics.counter("wingsync_bans_processed_total", "").add(batch.size());
+        metrics.histogram("wingsync_ban_batch_duration_seconds", "").recordSince(start);
+        logger.info("Removed " + batch.size() + " banned player(s) from the whitelist and WingSync data: " + String.join(", ", batch));
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2025 Clove Twilight
+ * Licensed under the MIT License
+ * WingSync
+ */
+
+package uk.co.clovetwilight3.wingsync.commands;
+
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.TabCompleter;
+import uk.co.clovetwilight3.wingsync.Main;
+import uk.co.clovetwilight3.wingsync.storage.FileStorage;
+import uk.co.clovetwilight3.wingsync.storage.InstrumentedStorage;
+import uk.co.clovetwilight3.wingsync.storage.MySqlStorage;
+import uk.co.clovetwilight3.wingsync.storage.StorageBackend;
+import uk.co.clovetwilight3.wingsync.storage.StorageMigrator;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * /wsmigrate tomysql|tofile [restart] copies every link between file storage
+ * and MySQL while the server keeps running on its current backend.
+ *
+ * Whichever backend is not in use is opened just for the migration and
+ * closed again afterwards. An interrupted migration resumes from its
+ * checkpoint the next time it is run, unless "restart" is given.
+ */
+public class MigrateCommand implements CommandExecutor, TabCompleter {
+
+    private static final String USAGE = "Usage: /wsmigrate <tomysql|tofile> [restart]";
+
+    private final Main plugin;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile StorageMigrator migrator;
+
+    public MigrateCommand(Main plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (args.length < 1 || args.length > 2) {
+            sender.sendMessage(USAGE);
+            return true;
+        }
+
+        String direction = args[0].toLowerCase(Locale.ROOT);
+        if (!direction.equals("tomysql") && !direction.equals("tofile")) {
+            sender.sendMessage(USAGE);
+            return true;
+        }
+        boolean restart = args.length == 2 && args[1].equalsIgnoreCase("restart");
+
+        if (plugin.getStorage() == null) {
+            sender.sendMessage("WingSync is still starting up. Please try again in a moment.");
+            return true;
+        }
+        if (plugin.isReloading()) {
+            sender.sendMessage("WingSync is reloading. Please try again in a moment.");
+            return true;
+        }
+        if (!running.compareAndSet(false, true)) {
+            sender.sendMessage("A WingSync migration is already running.");
+            return true;
+        }
+
+        sender.sendMessage("Migrating WingSync data " + (direction.equals("tomysql") ? "to MySQL" : "to file storage") + "...");
+        plugin.getStorageExecutor().run(() -> migrate(sender, direction.equals("tomysql"), restart))
+                .whenComplete((ignored, error) -> running.set(false));
+        return true;
+    }
+
+    @Override
+    public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
+        List<String> options = args.length == 1 ? List.of("tomysql", "tofile")
+                : args.length == 2 ? List.of("restart") : List.of();
+        String typed = args.length > 0 ? args[args.length - 1].toLowerCase(Locale.ROOT) : "";
+        return options.stream().filter(option -> option.startsWith(typed)).toList();
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    /**
+     * Stop a running migration after its current chunk. It resumes next time.
+     */
+    public void cancel() {
+        StorageMigrator current = migrator;
+        if (current != null) {
+            current.cancel();
+        }
+    }
+
+    private void migrate(CommandSender sender, boolean toMySql, boolean restart) {
+        StorageBackend active = plugin.getStorage();
+        if (active instanceof InstrumentedStorage instrumented) {
+            active = instrumented.getDelegate();
+        }
+
+        // Backends opened only for this migration, closed once it is done
+        List<StorageBackend> opened = new ArrayList<>();
+        try {
+            // The active MySQL backend is used through its cache, so the copy does not leave it stale
+            StorageBackend mySql = Main.unwrap(active) instanceof MySqlStorage ? active : open(opened, plugin.openMySqlStorage());
+            StorageBackend file = Main.unwrap(active) instanceof FileStorage ? active : open(opened, plugin.openFileStorage());
+            StorageBackend source = toMySql ? file : mySql;
+            StorageBackend target = toMySql ? mySql : file;
+
+            migrator = new StorageMigrator(plugin.getConfig().getInt("storage.migration.chunk_size", 1000));
+            Path checkpoint = plugin.getDataFolder().toPath().resolve(toMySql ? "migrate-tomysql.checkpoint" : "migrate-tofile.checkpoint");
+            StorageMigrator.Result result = migrator.migrate(source, target, checkpoint, restart, sender::sendMessage);
+
+            String summary = "Copied " + result.copied() + " links from " + source.getName() + " to " + target.getName()
+                    + ". Source has " + result.sourceCount() + " links (checksum " + Long.toHexString(result.sourceChecksum())
+                    + "), target has " + result.targetCount() + " (checksum " + Long.toHexString(result.targetChecksum()) + ").";
+            plugin.getLogger().info(summary);
+            sender.sendMessage(summary);
+            if (result.verified()) {
+                sender.sendMessage("Verified: both backends hold the same links.");
+            } else {
+                sender.sendMessage("Verification found differences: " + result.missing() + " missing from the target, "
+                        + result.different() + " different, " + result.extra() + " only in the target. "
+                        + "Links changed during the copy are picked up by running the migration again.");
+            }
+        } catch (CancellationException e) {
+            sender.sendMessage(e.getMessage() + ". Run /wsmigrate again to resume.");
+        } catch (Exception e) {
+            plugin.getLogger().warning("Migration failed: " + e.getMessage());
+            sender.sendMessage("Migration failed: " + e.getMessage() + ". Run /wsmigrate again to resume.");
+        } finally {
+            migrator = null;
+            for (StorageBackend backend : opened) {
+                backend.close();
+            }
+        }
+    }
+
+    private static StorageBackend open(List<StorageBackend> opened, StorageBackend backend) {
+        opened.add(backend);
+        return backend;
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2025 Clove Twilight
+ * Licensed under the MIT License
+ * WingSync
+ */
+
+package uk.co.clovetwilight3.wingsync.commands;
+
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+import uk.co.clovetwilight3.wingsync.Main;
+
+import java.util.concurrent.CompletionException;
+
+/**
+ * /wsreload re-reads config.yml and swaps in a new storage backend and
+ * Discord session. The work happens in the background; the sender is told
+ * how it is going.
+ *
+ * Settings for metrics, whitelist batching, bans and the name resolver are
+ * read once at startup and still need a restart.
+ */
+public class ReloadCommand implements CommandExecutor {
+
+    private final Main plugin;
+
+    public ReloadCommand(Main plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        sender.sendMessage("Reloading WingSync...");
+        plugin.reload(sender::sendMessage).whenComplete((ignored, error) -> {
+            if (error == null) {
+                sender.sendMessage("WingSync reloaded.");
+                return;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            plugin.getLogger().warning("Reload failed: " + cause.getMessage());
+            sender.sendMessage("Reload failed: " + cause.getMessage() + ". WingSync is still running on its previous settings.");
+        });
+        return true;
+    }
+}
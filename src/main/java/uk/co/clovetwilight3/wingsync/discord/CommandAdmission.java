@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2025 Clove Twilight
+ * Licensed under the MIT License
+ * WingSync
+ */
+
+package uk.co.clovetwilight3.wingsync.discord;
+
+import uk.co.clovetwilight3.wingsync.metrics.MetricsRegistry;
+import uk.co.clovetwilight3.wingsync.util.TtlCache;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Decides which slash commands are run, before any of them touch storage or
+ * the server thread.
+ *
+ * Each Discord user has a token bucket, so one user cannot flood the bot, and
+ * a global cap bounds how many commands run at once. Commands acting on the
+ * same Minecraft name are run once: a repeat of a running command shares its
+ * result, and a different command for that name is turned away until the
+ * first one finishes.
+ */
+public class CommandAdmission {
+
+    public static final String REJECTIONS = "wingsync_command_rejections_total";
+    public static final String MERGED = "wingsync_commands_merged_total";
+
+    public enum Outcome {
+        ADMITTED,
+        RATE_LIMITED,
+        BUSY
+    }
+
+    private record Running(String owner, CompletableFuture<?> result) {
+    }
+
+    private final int burst;
+    private final double tokensPerMilli;
+    private final int maxConcurrent;
+    private final Semaphore permits;
+    private final MetricsRegistry metrics;
+    // Idle users' buckets expire once they would have refilled anyway
+    private final TtlCache<String, TokenBucket> buckets;
+    private final Map<String, Running> running = new ConcurrentHashMap<>();
+
+    /**
+     * @param burst         How many commands a user may send back to back
+     * @param perMinute     How fast a user's allowance refills
+     * @param maxConcurrent How many commands may run at once across all users
+     */
+    public CommandAdmission(int burst, double perMinute, int maxConcurrent, MetricsRegistry metrics) {
+        this.burst = Math.max(1, burst);
+        this.tokensPerMilli = Math.max(0.001, perMinute) / TimeUnit.MINUTES.toMillis(1);
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.permits = new Semaphore(this.maxConcurrent);
+        this.metrics = metrics;
+        this.buckets = new TtlCache<>(10000, Math.max(1, (long) Math.ceil(this.burst / tokensPerMilli)));
+        metrics.help(REJECTIONS, "Slash commands turned away before running");
+        metrics.help(MERGED, "Slash commands answered with the result of an identical one already running");
+        metrics.gauge("wingsync_commands_in_flight", "", () -> this.maxConcurrent - permits.availablePermits());
+    }
+
+    /**
+     * Take one of the user's tokens and a running slot. When admitted, call
+     * {@link #release()} once the command has finished.
+     */
+    public Outcome tryAdmit(String userId) {
+        TokenBucket bucket;
+        synchronized (buckets) {
+            bucket = buckets.get(userId);
+            if (bucket == null) {
+                bucket = new TokenBucket(burst);
+            }
+            // Put back on every use, so only idle buckets expire
+            buckets.put(userId, bucket);
+        }
+
+        if (!bucket.tryTake(burst, tokensPerMilli)) {
+            reject("rate_limited");
+            return Outcome.RATE_LIMITED;
+        }
+        if (!permits.tryAcquire()) {
+            // Not the user's fault, so it does not count against them
+            bucket.refund();
+            reject("busy");
+            return Outcome.BUSY;
+        }
+        return Outcome.ADMITTED;
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    /**
+     * Run a task unless one is already running for the same key.
+     *
+     * @param key   What the task acts on, e.g. a Minecraft name
+     * @param owner Who is asking and for what; the same owner shares a running task's result
+     * @return The task's result, or null if a different owner's task holds the key
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> once(String key, String owner, Supplier<CompletableFuture<T>> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Running mine = new Running(owner, result);
+        Running existing = running.putIfAbsent(key, mine);
+        if (existing != null) {
+            if (!existing.owner().equals(owner)) {
+                reject("in_progress");
+                return null;
+            }
+            metrics.counter(MERGED, "").increment();
+            // Owners always run the same command, so the result type matches
+            return (CompletableFuture<T>) existing.result();
+        }
+
+        try {
+            task.get().whenComplete((value, error) -> {
+                running.remove(key, mine);
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(value);
+                }
+            });
+        } catch (RuntimeException e) {
+            running.remove(key, mine);
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    private void reject(String reason) {
+        metrics.counter(REJECTIONS, MetricsRegistry.label("reason", reason)).increment();
+    }
+
+    private static final class TokenBucket {
+        private double tokens;
+        private long refilledAt = System.currentTimeMillis();
+
+        TokenBucket(int tokens) {
+            this.tokens = tokens;
+        }
+
+        synchronized boolean tryTake(int capacity, double tokensPerMilli) {
+            long now = System.currentTimeMillis();
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerMilli);
+            refilledAt = now;
+            if (tokens < 1) {
+                return false;
+            }
+            tokens--;
+            return true;
+        }
+
+        synchronized void refund() {
+            tokens++;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2025 Clove Twilight
+ * Licensed under the MIT License
+ * WingSync
+ */
+
+package uk.co.clovetwilight3.wingsync.discord;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.events.session.ReadyEvent;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import net.dv8tion.jda.api.interactions.commands.Command;
+import net.dv8tion.jda.api.interactions.commands.build.CommandData;
+import uk.co.clovetwilight3.wingsync.metrics.MetricsRegistry;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+/**
+ * Registers WingSync's slash commands with Discord only when they have changed.
+ *
+ * The command definitions are hashed and the hash of the last successful
+ * registration is kept on disk, so reconnects and restarts with the same
+ * commands make no registration calls at all. Otherwise the commands Discord
+ * already has are fetched and compared, and only a real difference is pushed.
+ *
+ * Commands can be registered to one guild instead of globally. Guild commands
+ * appear straight away, while global ones can take a while to reach every
+ * client. Switching between the two removes the commands left in the other
+ * place, so they do not show up twice.
+ */
+public class CommandRegistrar extends ListenerAdapter {
+
+    public static final String REGISTRATIONS = "wingsync_command_registrations_total";
+
+    private final Path stateFile;
+    private final String guildId;
+    private final boolean guildScoped;
+    private final Logger logger;
+    private final MetricsRegistry metrics;
+    private final AtomicBoolean syncing = new AtomicBoolean();
+
+    /**
+     * @param stateFile   Where the hash of the last registration is kept between restarts
+     * @param guildId     The guild the bot serves, or blank if none is configured
+     * @param guildScoped Register the commands to that guild instead of globally
+     */
+    public CommandRegistrar(Path stateFile, String guildId, boolean guildScoped, Logger logger, MetricsRegistry metrics) {
+        this.stateFile = stateFile;
+        this.guildId = guildId != null ? guildId : "";
+        this.guildScoped = guildScoped && !this.guildId.isBlank();
+        this.logger = logger;
+        this.metrics = metrics;
+        metrics.help(REGISTRATIONS, "Slash command registration checks, by whether anything had to be sent to Discord");
+    }
+
+    @Override
+    public void onReady(ReadyEvent event) {
+        // A reconnect while the last check is still running has nothing new to check
+        if (syncing.compareAndSet(false, true)) {
+            sync(event.getJDA(), DiscordSlashCommandListener.commands())
+                    .whenComplete((result, error) -> syncing.set(false));
+        }
+    }
+
+    private CompletableFuture<Void> sync(JDA jda, List<CommandData> commands) {
+        String hash = hash(commands);
+        String state = jda.getSelfUser().getApplicationId() + " " + (guildScoped ? "guild:" + guildId : "global") + " " + hash;
+        if (state.equals(readState())) {
+            record("cached");
+            logger.info("WingSync slash commands are already registered.");
+            return CompletableFuture.completedFuture(null);
+        }
+
+        Guild guild = guildId.isBlank() ? null : jda.getGuildById(guildId);
+        if (guildScoped && guild == null) {
+            record("failed");
+            logger.severe("Failed to register WingSync slash commands: the bot is not in guild " + guildId);
+            return CompletableFuture.completedFuture(null);
+        }
+        Guild target = guildScoped ? guild : null;
+
+        CompletableFuture<List<Command>> registered = target != null
+                ? target.retrieveCommands().submit()
+                : jda.retrieveCommands().submit();
+        return registered.thenCompose(current -> {
+            if (hash(current.stream().map(CommandData::fromCommand).toList()).equals(hash)) {
+                return CompletableFuture.completedFuture("unchanged");
+            }
+            return (target != null ? target.updateCommands() : jda.updateCommands())
+                    .addCommands(commands).submit().thenApply(done -> "pushed");
+        }).thenCompose(result -> clearOtherScope(jda, guild).thenApply(cleared -> result)).<Void>handle((result, error) -> {
+            if (error != null) {
+                record("failed");
+                logger.severe("Failed to register WingSync slash commands: " + error.getMessage());
+                return null;
+            }
+            record(result);
+            writeState(state);
+            logger.info(result.equals("pushed")
+                    ? "Successfully registered WingSync slash commands" + (target != null ? " to guild " + guildId : "") + "!"
+                    : "WingSync slash commands are already registered.");
+            return null;
+        });
+    }
+
+    /**
+     * Remove WingSync's commands from wherever they are not meant to be
+     * registered, left there by an earlier setting.
+     */
+    private CompletableFuture<Void> clearOtherScope(JDA jda, Guild guild) {
+        if (guildScoped) {
+            return jda.retrieveCommands().submit().thenCompose(global -> global.isEmpty()
+                    ? CompletableFuture.<Void>completedFuture(null)
+                    : jda.updateCommands().submit().thenAccept(cleared -> logger.info("Removed the global WingSync slash commands.")));
+        }
+        if (guild == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return guild.retrieveCommands().submit().thenCompose(local -> local.isEmpty()
+                ? CompletableFuture.<Void>completedFuture(null)
+                : guild.updateCommands().submit().thenAccept(cleared -> logger.info("Removed the WingSync slash commands registered to guild " + guildId + ".")));
+    }
+
+    /**
+     * Hash command definitions so the same commands always give the same hash,
+     * whatever order they or their fields are in.
+     */
+    static String hash(List<CommandData> commands) {
+        List<CommandData> sorted = new ArrayList<>(commands);
+        sorted.sort(Comparator.comparing(CommandData::getName));
+        JsonArray definitions = new JsonArray();
+        for (CommandData command : sorted) {
+            definitions.add(canonical(JsonParser.parseString(new String(command.toData().toJson(), StandardCharsets.UTF_8))));
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(definitions.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static JsonElement canonical(JsonElement element) {
+        if (element.isJsonObject()) {
+            Map<String, JsonElement> fields = new TreeMap<>();
+            for (Map.Entry<String, JsonElement> field : element.getAsJsonObject().entrySet()) {
+                fields.put(field.getKey(), canonical(field.getValue()));
+            }
+            JsonObject sorted = new JsonObject();
+            fields.forEach(sorted::add);
+            return sorted;
+        }
+        if (element.isJsonArray()) {
+            JsonArray copy = new JsonArray();
+            for (JsonElement item : element.getAsJsonArray()) {
+                copy.add(canonical(item));
+            }
+            return copy;
+        }
+        return element;
+    }
+
+    private String readState() {
+        try {
+            return Files.exists(stateFile) ? Files.readString(stateFile, StandardCharsets.UTF_8).trim() : null;
+        } catch (IOException e) {
+            logger.warning("Failed to read " + stateFile.getFileName() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeState(String state) {
+        Path temp = stateFile.resolveSibling(stateFile.getFileName() + ".tmp");
+        try {
+            Files.writeString(temp, state, StandardCharsets.UTF_8);
+            try {
+                Files.move(temp, stateFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, stateFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            // Only costs a comparison with Discord on the next connect
+            logger.warning("Failed to save " + stateFile.getFileName() + ": " + e.getMessage());
+        }
+    }
+
+    private void record(String result) {
+        metrics.counter(REGISTRATIONS, MetricsRegistry.label("result", result)).increment();
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2025 Clove Twilight
+ * Licensed under the MIT License
+ * WingSync
+ */
+
+package uk.co.clovetwilight3.wingsync.discord;
+
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.JDABuilder;
+import net.dv8tion.jda.api.events.GenericEvent;
+import net.dv8tion.jda.api.events.session.ReadyEvent;
+import net.dv8tion.jda.api.exceptions.InvalidTokenException;
+import net.dv8tion.jda.api.hooks.EventListener;
+import net.dv8tion.jda.api.requests.GatewayIntent;
+import net.dv8tion.jda.api.utils.ChunkingFilter;
+import net.dv8tion.jda.api.utils.MemberCachePolicy;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Logger;
+
+/**
+ * Owns the JDA session and connects it in the background.
+ *
+ * {@link #start()} returns immediately. Login and the gateway handshake run
+ * on their own thread with a bounded number of attempts and exponential
+ * backoff, so a Discord outage never holds up server startup. Anything that
+ * needs the bot can hang off {@link #whenReady()}.
+ */
+public class DiscordBot {
+
+    private static final long MAX_BACKOFF_MILLIS = 60_000;
+
+    private final String token;
+    private final Logger logger;
+    private final int maxAttempts;
+    private final long readyTimeoutSeconds;
+    private final Object[] listeners;
+    private final CompletableFuture<JDA> ready = new CompletableFuture<>();
+
+    private volatile JDA jda;
+    private volatile Thread connectThread;
+    private volatile boolean shuttingDown;
+
+    /**
+     * @param maxAttempts         How many times to try connecting before giving up
+     * @param readyTimeoutSeconds How long one attempt may take to reach READY
+     * @param listeners           JDA event listeners to register on the session
+     */
+    public DiscordBot(String token, Logger logger, int maxAttempts, long readyTimeoutSeconds, Object... listeners) {
+        this.token = token;
+        this.logger = logger;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.readyTimeoutSeconds = Math.max(1, readyTimeoutSeconds);
+        this.listeners = listeners;
+    }
+
+    public void start() {
+        connectThread = Thread.ofVirtual().name("WingSync-Discord-Connect").start(this::connect);
+    }
+
+    /**
+     * @return A future completed once the bot first reaches READY, or completed
+     *         exceptionally if every connection attempt failed
+     */
+    public CompletableFuture<JDA> whenReady() {
+        return ready;
+    }
+
+    public boolean isReady() {
+        return ready.isDone() && !ready.isCompletedExceptionally();
+    }
+
+    /**
+     * @return The JDA session, or null while still connecting
+     */
+    public JDA getJda() {
+        return isReady() ? jda : null;
+    }
+
+    public void shutdown() {
+        shuttingDown = true;
+        Thread thread = connectThread;
+        if (thread != null) {
+            thread.interrupt();
+        }
+
+        JDA session = jda;
+        if (session == null) {
+            return;
+        }
+
+        session.shutdown();
+        try {
+            if (!session.awaitShutdown(10, TimeUnit.SECONDS)) {
+                session.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            logger.warning("Discord bot shutdown interrupted: " + e.getMessage());
+            session.shutdownNow();
+        }
+    }
+
+    private void connect() {
+        long backoff = 5_000;
+        for (int attempt = 1; attempt <= maxAttempts && !shuttingDown; attempt++) {
+            CompletableFuture<JDA> attemptReady = new CompletableFuture<>();
+            EventListener readyListener = new EventListener() {
+                @Override
+                public void onEvent(GenericEvent event) {
+                    if (event instanceof ReadyEvent) {
+                        attemptReady.complete(event.getJDA());
+                    }
+                }
+            };
+
+            try {
+                jda = JDABuilder.createDefault(token)
+                        .enableIntents(GatewayIntent.GUILD_MEMBERS)
+                        // Members are fetched when needed, so memory does not grow with the guild
+                        .setMemberCachePolicy(MemberCachePolicy.NONE)
+                        .setChunkingFilter(ChunkingFilter.NONE)
+                        .addEventListeners(listeners)
+                        .addEventListeners(readyListener)
+                        .setAutoReconnect(true)
+                        .build();
+
+                attemptReady.get(readyTimeoutSeconds, TimeUnit.SECONDS);
+                logger.info("Discord bot connected successfully!");
+                ready.complete(jda);
+                return;
+            } catch (InvalidTokenException e) {
+                // Retrying will not fix a bad token
+                logger.severe("Failed to connect Discord bot: " + e.getMessage());
+                discardSession();
+                break;
+            } catch (InterruptedException e) {
+                discardSession();
+                break;
+            } catch (TimeoutException e) {
+                logger.warning("Discord bot did not become ready within " + readyTimeoutSeconds
+                        + "s (attempt " + attempt + "/" + maxAttempts + ")");
+                discardSession();
+            } catch (Exception e) {
+                logger.warning("Failed to connect Discord bot (attempt " + attempt + "/" + maxAttempts + "): " + e.getMessage());
+                discardSession();
+            }
+
+            if (attempt < maxAttempts && !shuttingDown) {
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException e) {
+                    break;
+                }
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+            }
+        }
+
+        if (!shuttingDown) {
+            logger.severe("Giving up on connecting the Discord bot. Run /wsreload to try again.");
+        }
+        ready.completeExceptionally(new IllegalStateException("Discord bot could not connect"));
+    }
+
+    private void discardSession() {
+        JDA session = jda;
+        jda = null;
+        if (session != null) {
+            session.shutdownNow();
+        }
+    }
+}
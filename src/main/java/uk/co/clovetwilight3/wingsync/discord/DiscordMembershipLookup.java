@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2025 Clove Twilight
+ * Licensed under the MIT License
+ * WingSync
+ */
+
+package uk.co.clovetwilight3.wingsync.discord;
+
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.exceptions.ErrorResponseException;
+import net.dv8tion.jda.api.requests.ErrorResponse;
+import uk.co.clovetwilight3.wingsync.enforcement.MembershipLookup;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Asks Discord whether a user is in the configured guild, through whichever
+ * bot session is currently connected.
+ */
+public class DiscordMembershipLookup implements MembershipLookup {
+
+    private final Supplier<DiscordBot> bot;
+    private final Supplier<String> guildId;
+
+    /**
+     * @param bot     Supplies the current bot, or null when none is running
+     * @param guildId Supplies the ID of the guild players must be in
+     */
+    public DiscordMembershipLookup(Supplier<DiscordBot> bot, Supplier<String> guildId) {
+        this.bot = bot;
+        this.guildId = guildId;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isMember(String discordId) {
+        DiscordBot current = bot.get();
+        JDA jda = current != null ? current.getJda() : null;
+        if (jda == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Discord bot is not connected"));
+        }
+        Guild guild = jda.getGuildById(guildId.get());
+        if (guild == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Bot is not in guild " + guildId.get()));
+        }
+
+        return guild.retrieveMemberById(discordId).submit().handle((member, error) -> {
+            if (error == null) {
+                return true;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof ErrorResponseException response
+                    && (response.getErrorResponse() == ErrorResponse.UNKNOWN_MEMBER
+                    || response.getErrorResponse() == ErrorResponse.UNKNOWN_USER)) {
+                return false;
+            }
+            throw new CompletionException(cause);
+        });
+    }
+}
@@ -0,0 +1,728 @@
+/*
+ * Copyright (c) 2025 Clove Twilight
+ * Licensed under the MIT License
+ * WingSync
+ */
+
+package uk.co.clovetwilight3.wingsync.discord;
+
+import net.dv8tion.jda.api.Permission;
+import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.events.interaction.component.ButtonInteractionEvent;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import net.dv8tion.jda.api.interactions.commands.DefaultMemberPermissions;
+import net.dv8tion.jda.api.interactions.commands.OptionMapping;
+import net.dv8tion.jda.api.interactions.commands.OptionType;
+import net.dv8tion.jda.api.interactions.commands.build.CommandData;
+import net.dv8tion.jda.api.interactions.commands.build.Commands;
+import net.dv8tion.jda.api.interactions.components.ActionRow;
+import net.dv8tion.jda.api.interactions.components.buttons.Button;
+import net.dv8tion.jda.api.utils.FileUpload;
+import uk.co.clovetwilight3.wingsync.audit.AuditEvent;
+import uk.co.clovetwilight3.wingsync.audit.AuditLog;
+import uk.co.clovetwilight3.wingsync.audit.AuditQuery;
+import uk.co.clovetwilight3.wingsync.bans.BanProcessor;
+import uk.co.clovetwilight3.wingsync.enforcement.LinkGate;
+import uk.co.clovetwilight3.wingsync.metrics.LatencyHistogram;
+import uk.co.clovetwilight3.wingsync.metrics.MetricsRegistry;
+import uk.co.clovetwilight3.wingsync.profile.UuidResolver;
+import uk.co.clovetwilight3.wingsync.storage.InstrumentedStorage;
+import uk.co.clovetwilight3.wingsync.storage.LinkResult;
+import uk.co.clovetwilight3.wingsync.storage.PlayerData;
+import uk.co.clovetwilight3.wingsync.storage.StorageBackend;
+import uk.co.clovetwilight3.wingsync.storage.StorageExecutor;
+import uk.co.clovetwilight3.wingsync.whitelist.WhitelistQueue;
+import uk.co.clovetwilight3.wingsync.whitelist.WhitelistReconciler;
+import uk.co.clovetwilight3.wingsync.whitelist.WhitelistSnapshot;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Handles WingSync's slash commands and whitelist paging buttons.
+ *
+ * Everything it needs is passed in rather than read from the plugin, so it
+ * can be driven without a running server, e.g. by the load generator in the
+ * benchmarks module.
+ */
+public class DiscordSlashCommandListener extends ListenerAdapter {
+
+    private static final String LIST_PAGE_BUTTON = "wingsync:listwhitelist:";
+    private static final int LIST_PAGE_SIZE = 25;
+    // Discord rate limits message edits, so progress is shown at most this often
+    private static final long PROGRESS_EDIT_INTERVAL_MILLIS = 2000;
+    private static final int HISTORY_LIMIT = 50;
+    // Leaves room in Discord's 2000 character limit for the summary line
+    private static final int HISTORY_MESSAGE_CHARS = 1800;
+
+    public static final String COMMAND_DURATION = "wingsync_command_duration_seconds";
+    public static final String COMMAND_ERRORS = "wingsync_command_errors_total";
+    public static final String LINK_REJECTIONS = "wingsync_link_rejections_total";
+
+    private final Supplier<StorageBackend> storage;
+    private final StorageExecutor storageExecutor;
+    private final UuidResolver uuidResolver;
+    private final WhitelistQueue whitelistQueue;
+    private final WhitelistSnapshot whitelistSnapshot;
+    private final BanProcessor banProcessor;
+    private final WhitelistReconciler reconciler;
+    private final CommandAdmission admission;
+    private final Supplier<LinkPolicy> linkPolicy;
+    private final AuditLog audit;
+    private final MetricsRegistry metrics;
+    private final Logger logger;
+    private final Supplier<String> adminDiscordId;
+
+    // Commands still replying, so a reload can let them finish before closing this session
+    private final Set<CompletableFuture<?>> inFlight = ConcurrentHashMap.newKeySet();
+    private volatile boolean accepting = true;
+
+    /**
+     * @param storage        Supplies the storage backend, or null while it is still loading
+     * @param linkPolicy     Supplies the rules /register applies
+     * @param adminDiscordId Supplies the Discord ID allowed to remove anyone's link
+     */
+    public DiscordSlashCommandListener(Supplier<StorageBackend> storage, StorageExecutor storageExecutor,
+                                       UuidResolver uuidResolver, WhitelistQueue whitelistQueue,
+                                       WhitelistSnapshot whitelistSnapshot, BanProcessor banProcessor,
+                                       WhitelistReconciler reconciler, CommandAdmission admission,
+                                       Supplier<LinkPolicy> linkPolicy, AuditLog audit,
+                                       MetricsRegistry metrics, Logger logger, Supplier<String> adminDiscordId) {
+        this.storage = storage;
+        this.storageExecutor = storageExecutor;
+        this.uuidResolver = uuidResolver;
+        this.whitelistQueue = whitelistQueue;
+        this.whitelistSnapshot = whitelistSnapshot;
+        this.banProcessor = banProcessor;
+        this.reconciler = reconciler;
+        this.admission = admission;
+        this.linkPolicy = linkPolicy;
+        this.audit = audit;
+        this.metrics = metrics;
+        this.logger = logger;
+        this.adminDiscordId = adminDiscordId;
+        metrics.help(COMMAND_DURATION, "Time from receiving a slash command to finishing its reply");
+        metrics.help(COMMAND_ERRORS, "Slash commands that failed");
+        metrics.help(LINK_REJECTIONS, "Links refused by the link policy");
+    }
+
+    /**
+     * @return The definitions of every WingSync slash command, as registered with Discord
+     */
+    public static List<CommandData> commands() {
+        return List.of(
+                Commands.slash("register", "WingSync: Add a player to the Minecraft server whitelist")
+                        .addOption(OptionType.STRING, "player", "The Minecraft username to add to whitelist", true),
+
+                Commands.slash("remove", "WingSync: Remove a player from the Minecraft server whitelist")
+                        .addOption(OptionType.STRING, "player", "The Minecraft username to remove from whitelist", true),
+
+                Commands.slash("listwhitelist", "WingSync: Display all players currently on the whitelist"),
+
+                Commands.slash("whois", "WingSync: Find which Minecraft accounts are linked to a Discord user")
+                        .addOption(OptionType.USER, "user", "The Discord user to check", true),
+
+                Commands.slash("whomc", "WingSync: Find which Discord user is linked to a Minecraft username")
+                        .addOption(OptionType.STRING, "username", "The Minecraft username to check", true),
+
+                Commands.slash("storage", "WingSync: Check the current storage method being used"),
+
+                Commands.slash("wsstats", "WingSync: Show command and storage latency statistics"),
+
+                Commands.slash("reconcile", "WingSync: Compare the server whitelist with WingSync data and fix differences")
+                        .addOption(OptionType.BOOLEAN, "dry_run", "Only report the differences (default: true)", false),
+
+                Commands.slash("history", "WingSync: Show past link changes for a player or Discord user")
+                        .addOption(OptionType.STRING, "player", "Minecraft username or UUID", false)
+                        .addOption(OptionType.USER, "user", "Discord user", false)
+                        .addOption(OptionType.STRING, "from", "Earliest date, as YYYY-MM-DD", false)
+                        .addOption(OptionType.STRING, "to", "Latest date, as YYYY-MM-DD", false)
+                        // Server admins can hand this to other roles in Discord's integration settings
+                        .setDefaultPermissions(DefaultMemberPermissions.enabledFor(Permission.MODERATE_MEMBERS)),
+
+                Commands.slash("transfer", "WingSync: Move a Minecraft account to a different Discord user")
+                        .addOption(OptionType.STRING, "player", "The Minecraft username to move", true)
+                        .addOption(OptionType.USER, "user", "The Discord user to link it to", true)
+                        .setDefaultPermissions(DefaultMemberPermissions.enabledFor(Permission.ADMINISTRATOR))
+        );
+    }
+
+    @Override
+    public void onSlashCommandInteraction(SlashCommandInteractionEvent event) {
+        if (!accepting) {
+            // Draining for a reload; the new session answers instead
+            return;
+        }
+        if (storage.get() == null) {
+            event.reply("⏳ WingSync is still starting up. Please try again in a moment.").setEphemeral(true).queue();
+            return;
+        }
+
+        // Turned away here, overload never reaches storage or the server thread
+        switch (admission.tryAdmit(event.getUser().getId())) {
+            case RATE_LIMITED:
+                event.reply("⏳ You are sending commands too quickly. Please wait a few seconds and try again.").setEphemeral(true).queue();
+                return;
+            case BUSY:
+                event.reply("⏳ WingSync is busy right now. Please try again in a moment.").setEphemeral(true).queue();
+                return;
+            default:
+                break;
+        }
+
+        long start = System.nanoTime();
+        CompletableFuture<?> done = null;
+        try {
+            done = dispatch(event);
+        } finally {
+            if (done == null) {
+                admission.release();
+            }
+        }
+
+        if (done != null) {
+            done.whenComplete((result, error) -> admission.release());
+            track(done);
+            String labels = MetricsRegistry.label("command", event.getName());
+            done.whenComplete((result, error) -> {
+                metrics.histogram(COMMAND_DURATION, labels).recordSince(start);
+                if (error != null) {
+                    metrics.counter(COMMAND_ERRORS, labels).increment();
+                }
+            });
+        }
+    }
+
+    private CompletableFuture<?> dispatch(SlashCommandInteractionEvent event) {
+        CompletableFuture<?> done = null;
+        switch (event.getName()) {
+            case "whois":
+                done = handleWhoisCommand(event);
+                break;
+            case "whomc":
+                done = handleWhomcCommand(event);
+                break;
+            case "register":
+                done = handleWhitelistCommand(event);
+                break;
+            case "remove":
+                done = handleUnwhitelistCommand(event);
+                break;
+            case "listwhitelist":
+                done = handleListWhitelistCommand(event);
+                break;
+            case "storage":
+                done = handleStorageCommand(event);
+                break;
+            case "wsstats":
+                done = handleStatsCommand(event);
+                break;
+            case "reconcile":
+                done = handleReconcileCommand(event);
+                break;
+            case "history":
+                done = handleHistoryCommand(event);
+                break;
+            case "transfer":
+                done = handleTransferCommand(event);
+                break;
+        }
+        return done;
+    }
+
+    private CompletableFuture<?> handleStatsCommand(SlashCommandInteractionEvent event) {
+        StringBuilder response = new StringBuilder("**WingSync Stats**\n");
+
+        response.append("__Commands__\n");
+        appendLatencies(response, metrics.histograms(COMMAND_DURATION));
+
+        response.append("__Storage__\n");
+        appendLatencies(response, metrics.histograms(InstrumentedStorage.OP_DURATION));
+
+        Map<String, LatencyHistogram> joinChecks = metrics.histograms(LinkGate.JOIN_CHECK);
+        if (!joinChecks.isEmpty()) {
+            response.append("__Join checks__\n");
+            appendLatencies(response, joinChecks);
+        }
+
+        response.append("__Server thread__\n");
+        appendLatencies(response, metrics.histograms("wingsync_main_thread_wait_seconds"));
+
+        response.append("__Turned away__\n")
+                .append(metrics.counterValue(CommandAdmission.REJECTIONS, MetricsRegistry.label("reason", "rate_limited"))).append(" rate limited, ")
+                .append(metrics.counterValue(CommandAdmission.REJECTIONS, MetricsRegistry.label("reason", "busy"))).append(" busy, ")
+                .append(metrics.counterValue(CommandAdmission.REJECTIONS, MetricsRegistry.label("reason", "in_progress"))).append(" name in use, ")
+                .append(metrics.counterValue(CommandAdmission.MERGED, "")).append(" merged\n");
+
+        response.append("__Bans__\n")
+                .append(metrics.counterValue("wingsync_ban_events_total", "")).append(" received, ")
+                .append(banProcessor.getProcessedCount()).append(" processed, ")
+                .append(banProcessor.getPendingCount()).append(" pending");
+
+        event.reply(response.toString()).setEphemeral(true).queue();
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private void appendLatencies(StringBuilder response, Map<String, LatencyHistogram> histograms) {
+        if (histograms.isEmpty()) {
+            response.append("No data yet\n");
+        }
+        for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            String name = entry.getKey().isEmpty() ? "wait" : entry.getKey().replaceAll("^\\w+=\"(.*)\"$", "$1");
+            response.append("`").append(name).append("` ")
+                    .append(histogram.count()).append(" calls, mean ").append(formatMillis(histogram.meanSeconds()))
+                    .append(", p50 ≤").append(formatMillis(histogram.quantileSeconds(0.5)))
+                    .append(", p99 ≤").append(formatMillis(histogram.quantileSeconds(0.99)))
+                    .append("\n");
+        }
+    }
+
+    private String formatMillis(double seconds) {
+        if (Double.isInfinite(seconds)) {
+            return "∞";
+        }
+        return String.format(Locale.ROOT, "%.1fms", seconds * 1000);
+    }
+
+    private CompletableFuture<?> handleReconcileCommand(SlashCommandInteractionEvent event) {
+        if (!event.getUser().getId().equals(adminDiscordId.get())) {
+            event.reply("❌ Only the WingSync admin can reconcile the whitelist.").setEphemeral(true).queue();
+            return CompletableFuture.completedFuture(null);
+        }
+
+        boolean dryRun = event.getOption("dry_run") == null || event.getOption("dry_run").getAsBoolean();
+        event.deferReply(true).queue();
+
+        AtomicLong lastEdit = new AtomicLong();
+        return reconciler.reconcile(dryRun, event.getUser().getId(), status -> {
+            long now = System.currentTimeMillis();
+            long last = lastEdit.get();
+            if (now - last >= PROGRESS_EDIT_INTERVAL_MILLIS && lastEdit.compareAndSet(last, now)) {
+                event.getHook().editOriginal("⏳ " + status).queue();
+            }
+        }).whenComplete((diff, error) -> {
+            if (error != null) {
+                logger.warning("Error reconciling whitelist: " + describe(error));
+                event.getHook().editOriginal("❌ Failed to reconcile the whitelist.").queue();
+                return;
+            }
+            if (diff == null) {
+                event.getHook().editOriginal("⏳ A reconciliation is already running.").queue();
+                return;
+            }
+
+            String summary;
+            if (diff.isEmpty()) {
+                summary = "✅ The whitelist and WingSync data match (" + diff.whitelisted() + " players).";
+            } else if (diff.applied()) {
+                summary = "✅ Imported **" + diff.whitelistOnly().size() + "** whitelisted players and removed **"
+                        + diff.storageOnly().size() + "** links for players not on the whitelist.";
+            } else {
+                summary = "**Dry run:** **" + diff.whitelistOnly().size() + "** whitelisted players are not stored and **"
+                        + diff.storageOnly().size() + "** stored links are not whitelisted. "
+                        + "Run `/reconcile dry_run:False` to fix them.";
+            }
+            byte[] report = WhitelistReconciler.render(diff).getBytes(StandardCharsets.UTF_8);
+            event.getHook().editOriginal(summary)
+                    .setFiles(FileUpload.fromData(report, "wingsync-reconcile.txt"))
+                    .queue();
+        });
+    }
+
+    private CompletableFuture<?> handleHistoryCommand(SlashCommandInteractionEvent event) {
+        String player = event.getOption("player", OptionMapping::getAsString);
+        String discordId = event.getOption("user", option -> option.getAsUser().getId());
+        long from;
+        long to;
+        try {
+            String fromDate = event.getOption("from", OptionMapping::getAsString);
+            String toDate = event.getOption("to", OptionMapping::getAsString);
+            from = fromDate != null ? LocalDate.parse(fromDate).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli() : 0;
+            to = toDate != null ? LocalDate.parse(toDate).plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli() - 1 : Long.MAX_VALUE;
+        } catch (DateTimeParseException e) {
+            event.reply("❌ Dates must look like 2025-01-31.").setEphemeral(true).queue();
+            return CompletableFuture.completedFuture(null);
+        }
+
+        String uuid = null;
+        String username = null;
+        if (player != null) {
+            try {
+                uuid = UUID.fromString(player).toString();
+            } catch (IllegalArgumentException e) {
+                username = player;
+            }
+        }
+
+        event.deferReply(true).queue();
+        return audit.query(new AuditQuery(uuid, username, discordId, from, to, HISTORY_LIMIT)).whenComplete((events, error) -> {
+            if (error != null) {
+                logger.warning("Error reading history: " + describe(error));
+                event.getHook().editOriginal("❌ Failed to read the history. Please try again later.").queue();
+                return;
+            }
+            if (events.isEmpty()) {
+                event.getHook().editOriginal("No link changes found.").queue();
+                return;
+            }
+
+            StringBuilder message = new StringBuilder("**Link history** (newest first)\n");
+            StringBuilder report = new StringBuilder();
+            int shown = 0;
+            boolean full = false;
+            for (AuditEvent entry : events) {
+                String line = "<t:" + entry.at() / 1000 + ":f> **" + entry.action() + "** " + entry.username()
+                        + " ↔ " + mention(entry.discordId()) + " by " + mention(entry.actor()) + "\n";
+                // Once one entry does not fit, the rest only go in the file
+                full = full || message.length() + line.length() > HISTORY_MESSAGE_CHARS;
+                if (!full) {
+                    message.append(line);
+                    shown++;
+                }
+                report.append(Instant.ofEpochMilli(entry.at())).append('\t').append(entry.action()).append('\t')
+                        .append(entry.username()).append('\t').append(entry.uuid()).append('\t')
+                        .append(entry.discordId()).append('\t').append(entry.actor()).append('\n');
+            }
+
+            if (shown == events.size()) {
+                event.getHook().editOriginal(message.toString()).queue();
+            } else {
+                message.append("…and ").append(events.size() - shown).append(" more in the attached file.");
+                event.getHook().editOriginal(message.toString())
+                        .setFiles(FileUpload.fromData(report.toString().getBytes(StandardCharsets.UTF_8), "wingsync-history.txt"))
+                        .queue();
+            }
+        });
+    }
+
+    private static String mention(String actor) {
+        if (actor == null) {
+            return "unknown";
+        }
+        return actor.chars().allMatch(Character::isDigit) ? "<@" + actor + ">" : actor;
+    }
+
+    private CompletableFuture<?> handleStorageCommand(SlashCommandInteractionEvent event) {
+        StorageBackend backend = storage.get();
+        String storageType = backend.getName();
+        String details = backend.describe();
+
+        event.reply("**Storage Information**\n" +
+                "Type: " + storageType + "\n" +
+                "Details: " + details + "\n" +
+                "Bans: " + banProcessor.getPendingCount() + " pending, " + banProcessor.getProcessedCount() + " processed").queue();
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private CompletableFuture<?> handleWhoisCommand(SlashCommandInteractionEvent event) {
+        event.deferReply().queue();
+
+        String discordId = event.getOption("user").getAsUser().getId();
+
+        return storageExecutor.supply(() -> storage.get().getUsernamesByDiscordId(discordId)).whenComplete((usernames, error) -> {
+            if (error != null) {
+                event.getHook().sendMessage("❌ Failed to fetch data. Please try again later.").queue();
+                logger.severe("Error in whois command: " + describe(error));
+                return;
+            }
+
+            StringBuilder response = new StringBuilder("Minecraft accounts linked to <@" + discordId + ">: ");
+
+            if (!usernames.isEmpty()) {
+                response.append(String.join(", ", usernames));
+            } else {
+                response.append("None");
+            }
+
+            event.getHook().sendMessage(response.toString()).queue();
+        });
+    }
+
+    private CompletableFuture<?> handleWhomcCommand(SlashCommandInteractionEvent event) {
+        event.deferReply().queue();
+
+        String username = event.getOption("username").getAsString();
+
+        return storageExecutor.supply(() -> storage.get().getDiscordUsernameByMinecraftUsername(username)).whenComplete((discordUsername, error) -> {
+            if (error != null) {
+                event.getHook().sendMessage("❌ Failed to fetch data. Please try again later.").queue();
+                logger.severe("Error in whomc command: " + describe(error));
+            } else if (discordUsername != null) {
+                event.getHook().sendMessage("**" + discordUsername + "** is linked to Minecraft username **" + username + "**").queue();
+            } else {
+                event.getHook().sendMessage("❌ No Discord user is linked to Minecraft username **" + username + "**").queue();
+            }
+        });
+    }
+
+    private CompletableFuture<?> handleWhitelistCommand(SlashCommandInteractionEvent event) {
+        String playerName = event.getOption("player").getAsString();
+        String discordId = event.getUser().getId();
+        String discordUsername = event.getUser().getAsTag();
+
+        return replyOnce(event, playerName, () -> register(playerName, discordId, discordUsername),
+                "Error adding player: ", "❌ Failed to add player to whitelist.");
+    }
+
+    private CompletableFuture<String> register(String playerName, String discordId, String discordUsername) {
+        LinkPolicy policy = linkPolicy.get();
+
+        // Resolve and store off the server thread; only the whitelist edit needs the main thread
+        return uuidResolver.resolvePlayer(playerName).thenComposeAsync(player -> {
+            if (player == null) {
+                return CompletableFuture.completedFuture("❌ No Minecraft account named **" + playerName + "** exists.");
+            }
+            String uuid = player.getUniqueId().toString();
+            LinkResult result = storage.get().linkPlayer(uuid, playerName, discordId, discordUsername,
+                    policy.maxAccounts(), !policy.claimProtection());
+            switch (result.status()) {
+                case CLAIMED:
+                    metrics.counter(LINK_REJECTIONS, MetricsRegistry.label("reason", "claimed")).increment();
+                    return CompletableFuture.completedFuture("❌ **" + playerName
+                            + "** is already linked to another Discord account. Ask the WingSync admin if it should be yours.");
+                case LIMIT_REACHED:
+                    metrics.counter(LINK_REJECTIONS, MetricsRegistry.label("reason", "limit")).increment();
+                    return CompletableFuture.completedFuture("❌ You already have " + policy.maxAccounts()
+                            + " linked accounts, the most allowed. Use /remove on one of them first.");
+                default:
+                    break;
+            }
+
+            audit.record(AuditEvent.now(AuditEvent.REGISTER, uuid, playerName, discordId, discordId));
+            uuidResolver.remember(playerName, player.getUniqueId());
+            return whitelistQueue.add(player).thenApply(added -> added
+                    ? "✅ Player **" + playerName + "** has been added to the whitelist!"
+                    : "✅ Player **" + playerName + "** is already on the whitelist and is now linked to your account.");
+        }, storageExecutor.executor());
+    }
+
+    private CompletableFuture<?> handleTransferCommand(SlashCommandInteractionEvent event) {
+        if (!event.getUser().getId().equals(adminDiscordId.get())) {
+            event.reply("❌ Only the WingSync admin can transfer accounts.").setEphemeral(true).queue();
+            return CompletableFuture.completedFuture(null);
+        }
+
+        String playerName = event.getOption("player").getAsString();
+        User target = event.getOption("user").getAsUser();
+        String adminId = event.getUser().getId();
+
+        return replyOnce(event, playerName, () -> transfer(playerName, target, adminId),
+                "Error transferring player: ", "❌ Failed to transfer the account.");
+    }
+
+    /**
+     * Link an account to a different Discord user, whoever has it now. The
+     * new owner's account limit still applies.
+     */
+    private CompletableFuture<String> transfer(String playerName, User target, String adminId) {
+        int maxAccounts = linkPolicy.get().maxAccounts();
+
+        return uuidResolver.resolvePlayer(playerName).thenComposeAsync(player -> {
+            if (player == null) {
+                return CompletableFuture.completedFuture("❌ No Minecraft account named **" + playerName + "** exists.");
+            }
+            String uuid = player.getUniqueId().toString();
+            LinkResult result = storage.get().linkPlayer(uuid, playerName, target.getId(), target.getAsTag(), maxAccounts, true);
+            switch (result.status()) {
+                case LIMIT_REACHED:
+                    return CompletableFuture.completedFuture("❌ " + target.getAsMention() + " already has " + maxAccounts
+                            + " linked accounts, the most allowed.");
+                case CLAIMED:
+                    // Only when someone else linked it at the same moment
+                    return CompletableFuture.completedFuture("❌ **" + playerName + "** was linked by someone else just now. Please try again.");
+                default:
+                    break;
+            }
+
+            audit.record(AuditEvent.now(AuditEvent.TRANSFER, uuid, playerName, target.getId(), adminId));
+            PlayerData previous = result.previous();
+            String from = previous != null && !previous.discordId.equals(target.getId())
+                    && !previous.discordId.equals(WhitelistReconciler.UNLINKED_DISCORD_ID)
+                    ? " from <@" + previous.discordId + ">" : "";
+            return whitelistQueue.add(player).thenApply(added -> "✅ **" + playerName + "** has been transferred"
+                    + from + " to " + target.getAsMention() + ".");
+        }, storageExecutor.executor());
+    }
+
+    private CompletableFuture<?> handleUnwhitelistCommand(SlashCommandInteractionEvent event) {
+        String playerName = event.getOption("player").getAsString();
+        String discordId = event.getUser().getId();
+
+        return replyOnce(event, playerName, () -> unregister(playerName, discordId),
+                "Error removing player: ", "❌ Failed to remove player from whitelist.");
+    }
+
+    private CompletableFuture<String> unregister(String playerName, String discordId) {
+        String adminDiscordId = this.adminDiscordId.get();
+
+        return uuidResolver.resolvePlayer(playerName).thenApplyAsync(player -> {
+            if (player == null) {
+                return null;
+            }
+            String uuid = player.getUniqueId().toString();
+            String playerDiscordId = storage.get().getDiscordIdByUuid(uuid);
+
+            if (playerDiscordId == null || !(playerDiscordId.equals(discordId) || discordId.equals(adminDiscordId))) {
+                return null;
+            }
+            storage.get().removePlayerData(uuid);
+            audit.record(AuditEvent.now(playerDiscordId.equals(discordId) ? AuditEvent.REMOVE : AuditEvent.ADMIN_REMOVE,
+                    uuid, playerName, playerDiscordId, discordId));
+            return player;
+        }, storageExecutor.executor()).thenCompose(player -> player == null
+                ? CompletableFuture.<Boolean>completedFuture(null)
+                : whitelistQueue.remove(player)
+        ).thenApply(removed -> {
+            if (removed == null) {
+                return "❌ You do not have permission to unwhitelist this player.";
+            } else if (removed) {
+                return "✅ Player **" + playerName + "** has been removed from the whitelist.";
+            } else {
+                return "✅ Player **" + playerName + "** has been unlinked. They were not on the whitelist.";
+            }
+        });
+    }
+
+    /**
+     * Run a command that changes a player at most once at a time. The same
+     * user repeating it gets the running command's reply; anyone else acting
+     * on that player is turned away until it finishes.
+     */
+    private CompletableFuture<?> replyOnce(SlashCommandInteractionEvent event, String playerName,
+                                           Supplier<CompletableFuture<String>> command, String logPrefix, String failure) {
+        String owner = event.getName() + ":" + event.getUser().getId();
+        CompletableFuture<String> reply = admission.once(playerName.toLowerCase(Locale.ROOT), owner, command);
+        if (reply == null) {
+            event.reply("⏳ **" + playerName + "** is being changed by another command. Please try again in a moment.")
+                    .setEphemeral(true).queue();
+            return CompletableFuture.completedFuture(null);
+        }
+
+        event.deferReply().queue();
+        return reply.whenComplete((message, error) -> {
+            if (error != null) {
+                logger.warning(logPrefix + describe(error));
+                event.getHook().sendMessage(failure).queue();
+            } else {
+                event.getHook().sendMessage(message).queue();
+            }
+        });
+    }
+
+    private CompletableFuture<?> handleListWhitelistCommand(SlashCommandInteractionEvent event) {
+        event.deferReply().queue();
+
+        return whitelistSnapshot.names().whenComplete((names, error) -> {
+            if (error != null) {
+                logger.warning("Error listing whitelist: " + describe(error));
+                event.getHook().sendMessage("❌ Failed to fetch the whitelist. Please try again later.").queue();
+                return;
+            }
+
+            int page = 0;
+            event.getHook().sendMessage(renderWhitelistPage(names, page))
+                    .setComponents(whitelistPageButtons(names, page))
+                    .queue();
+        });
+    }
+
+    @Override
+    public void onButtonInteraction(ButtonInteractionEvent event) {
+        if (!accepting || !event.getComponentId().startsWith(LIST_PAGE_BUTTON)) {
+            return;
+        }
+
+        int page;
+        try {
+            page = Integer.parseInt(event.getComponentId().substring(LIST_PAGE_BUTTON.length()));
+        } catch (NumberFormatException e) {
+            return;
+        }
+
+        event.deferEdit().queue();
+        track(whitelistSnapshot.names().whenComplete((names, error) -> {
+            if (error != null) {
+                logger.warning("Error listing whitelist: " + describe(error));
+                return;
+            }
+
+            int lastPage = Math.max(0, (names.length - 1) / LIST_PAGE_SIZE);
+            int clamped = Math.min(page, lastPage);
+            event.getHook().editOriginal(renderWhitelistPage(names, clamped))
+                    .setComponents(whitelistPageButtons(names, clamped))
+                    .queue();
+        }));
+    }
+
+    /**
+     * Start or stop handling interactions. A listener built for a reload is
+     * held back until it takes over, so two sessions never both answer.
+     */
+    public void setAccepting(boolean accepting) {
+        this.accepting = accepting;
+    }
+
+    /**
+     * Stop handling new interactions and let the ones already running finish.
+     * @return A future completed once they have all finished, or when the timeout passes
+     */
+    public CompletableFuture<Void> drain(long timeout, TimeUnit unit) {
+        accepting = false;
+        return CompletableFuture.allOf(inFlight.toArray(new CompletableFuture<?>[0]))
+                .exceptionally(error -> null)
+                .completeOnTimeout(null, timeout, unit);
+    }
+
+    private void track(CompletableFuture<?> command) {
+        inFlight.add(command);
+        command.whenComplete((result, error) -> inFlight.remove(command));
+    }
+
+    private String renderWhitelistPage(String[] names, int page) {
+        int pageCount = Math.max(1, (names.length + LIST_PAGE_SIZE - 1) / LIST_PAGE_SIZE);
+        StringBuilder response = new StringBuilder("**Whitelisted Players:** ")
+                .append(names.length).append(" total, page ").append(page + 1).append("/").append(pageCount)
+                .append("\n```\n");
+
+        List<String> pageNames = WhitelistSnapshot.page(names, page, LIST_PAGE_SIZE);
+        if (pageNames.isEmpty()) {
+            response.append("No players are currently whitelisted.");
+        }
+        for (String name : pageNames) {
+            response.append("• ").append(name).append("\n");
+        }
+
+        response.append("```");
+        return response.toString();
+    }
+
+    private ActionRow whitelistPageButtons(String[] names, int page) {
+        int lastPage = Math.max(0, (names.length - 1) / LIST_PAGE_SIZE);
+        return ActionRow.of(
+                Button.secondary(LIST_PAGE_BUTTON + (page - 1), "◀ Previous").withDisabled(page <= 0),
+                Button.secondary(LIST_PAGE_BUTTON + (page + 1), "Next ▶").withDisabled(page >= lastPage)
+        );
+    }
+
+    private String describe(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause.getMessage();
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2025 Clove Twilight
+ * Licensed under the MIT License
+ * WingSync
+ */
+
+package uk.co.clovetwilight3.wingsync.discord;
+
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberRemoveEvent;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import uk.co.clovetwilight3.wingsync.audit.AuditEvent;
+import uk.co.clovetwilight3.wingsync.audit.AuditLog;
+import uk.co.clovetwilight3.wingsync.metrics.MetricsRegistry;
+import uk.co.clovetwilight3.wingsync.storage.StorageBackend;
+import uk.co.clovetwilight3.wingsync.storage.StorageExecutor;
+import uk.co.clovetwilight3.wingsync.whitelist.WhitelistQueue;
+import uk.co.clovetwilight3.wingsync.whitelist.WhitelistReconciler;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Unlinks and unwhitelists players whose Discord account leaves the guild.
+ *
+ * Leaves are picked up from the gateway as they happen. Leaves missed while
+ * the bot was offline are caught by a periodic check that asks Discord about
+ * the linked users 100 at a time, so no member list is ever kept in memory.
+ */
+public class GuildMemberSync extends ListenerAdapter {
+
+    public static final String UNLINKS = "wingsync_member_unlinks_total";
+
+    // The most user IDs Discord accepts in one member request
+    private static final int CHUNK_SIZE = 100;
+    // Below this many linked users, a large share leaving at once is not suspicious
+    private static final int SAFETY_MINIMUM = 10;
+
+    private final Supplier<DiscordBot> bot;
+    private final Supplier<String> guildId;
+    private final StorageExecutor storageExecutor;
+    private final Supplier<StorageBackend> storage;
+    private final WhitelistQueue whitelistQueue;
+    private final AuditLog audit;
+    private final Consumer<String> onUnlinked;
+    private final Logger logger;
+    private final MetricsRegistry metrics;
+    private final long intervalMillis;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "WingSync-MemberSync");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * @param bot            Supplies the current bot, or null when none is running
+     * @param guildId        Supplies the ID of the guild players must stay in
+     * @param onUnlinked     Told the Discord ID of every user whose accounts were unlinked
+     * @param intervalMillis How often to check every linked user is still in the guild; 0 to only follow leave events
+     */
+    public GuildMemberSync(Supplier<DiscordBot> bot, Supplier<String> guildId, StorageExecutor storageExecutor,
+                           Supplier<StorageBackend> storage, WhitelistQueue whitelistQueue, AuditLog audit,
+                           Consumer<String> onUnlinked, Logger logger, MetricsRegistry metrics, long intervalMillis) {
+        this.bot = bot;
+        this.guildId = guildId;
+        this.storageExecutor = storageExecutor;
+        this.storage = storage;
+        this.whitelistQueue = whitelistQueue;
+        this.audit = audit;
+        this.onUnlinked = onUnlinked;
+        this.logger = logger;
+        this.metrics = metrics;
+        this.intervalMillis = intervalMillis;
+        metrics.help(UNLINKS, "Minecraft accounts unlinked because their Discord user left the guild");
+    }
+
+    public void start() {
+        if (intervalMillis > 0) {
+            // The first check soon after startup catches anyone who left while the server was down
+            long firstDelay = Math.min(intervalMillis, TimeUnit.MINUTES.toMillis(5));
+            scheduler.scheduleWithFixedDelay(this::reconcile, firstDelay, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    @Override
+    public void onGuildMemberRemove(GuildMemberRemoveEvent event) {
+        if (!event.getGuild().getId().equals(guildId.get())) {
+            return;
+        }
+        String discordId = event.getUser().getId();
+        storageExecutor.run(() -> unlink(discordId, "leave")).exceptionally(error -> {
+            // The next periodic check tries again
+            logger.warning("Failed to unlink Discord user " + discordId + " who left the guild: " + error.getMessage());
+            return null;
+        });
+    }
+
+    /**
+     * Check every linked Discord user is still in the guild and unlink those who are not.
+     */
+    private void reconcile() {
+        DiscordBot current = bot.get();
+        JDA jda = current != null ? current.getJda() : null;
+        StorageBackend backend = storage.get();
+        if (jda == null || backend == null) {
+            // Not this server's bot, or not connected yet; try again next time
+            return;
+        }
+        Guild guild = jda.getGuildById(guildId.get());
+        if (guild == null) {
+            logger.warning("Skipping guild member check: the bot is not in guild " + guildId.get());
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            Set<String> missing = new HashSet<>();
+            backend.forEachLink(link -> {
+                if (link.discordId != null && !link.discordId.equals(WhitelistReconciler.UNLINKED_DISCORD_ID)) {
+                    missing.add(link.discordId);
+                }
+            });
+            int linked = missing.size();
+
+            List<String> ids = new ArrayList<>(missing);
+            for (int i = 0; i < ids.size(); i += CHUNK_SIZE) {
+                // Members come back without being cached, so memory does not grow with the guild
+                String[] chunk = ids.subList(i, Math.min(i + CHUNK_SIZE, ids.size())).toArray(new String[0]);
+                List<Member> members = guild.retrieveMembersByIds(chunk).get();
+                for (Member member : members) {
+                    missing.remove(member.getId());
+                }
+            }
+
+            if (linked >= SAFETY_MINIMUM && missing.size() * 2 > linked) {
+                logger.warning("Guild member check found " + missing.size() + " of " + linked
+                        + " linked Discord users missing from the guild. Not unlinking anyone, as this looks like"
+                        + " a permissions or configuration problem rather than real leaves.");
+                return;
+            }
+
+            int unlinked = 0;
+            for (String discordId : missing) {
+                unlinked += unlink(discordId, "check");
+            }
+            if (unlinked > 0) {
+                logger.info("Guild member check unlinked " + unlinked + " accounts of " + missing.size()
+                        + " Discord users no longer in the guild.");
+            }
+        } catch (Exception e) {
+            logger.warning("Guild member check failed: " + e.getMessage());
+        } finally {
+            metrics.histogram("wingsync_member_sync_seconds", "").recordSince(start);
+        }
+    }
+
+    /**
+     * @return How many Minecraft accounts were unlinked
+     */
+    private int unlink(String discordId, String reason) {
+        StorageBackend backend = storage.get();
+        if (backend == null) {
+            throw new IllegalStateException("Storage is still loading");
+        }
+        List<String> uuids = backend.getUuidsByDiscordId(discordId);
+        if (!uuids.isEmpty()) {
+            backend.removePlayerDataBatch(uuids);
+            for (String uuid : uuids) {
+                OfflinePlayer player = Bukkit.getOfflinePlayer(UUID.fromString(uuid));
+                whitelistQueue.remove(player);
+                audit.record(AuditEvent.now(AuditEvent.LEFT_GUILD, uuid, player.getName(), discordId, AuditEvent.ACTOR_DISCORD));
+            }
+            metrics.counter(UNLINKS, MetricsRegistry.label("reason", reason)).add(uuids.size());
+            logger.info("Discord user " + discordId + " left the guild. Unlinked and unwhitelisted " + uuids + ".");
+        }
+        onUnlinked.accept(discordId);
+        return uuids.size();
+    }
+}
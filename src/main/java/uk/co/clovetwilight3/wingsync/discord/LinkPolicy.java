@@ -0,0 +1,17 @@
+/*
+ * Copyright (c) 2025 Clove Twilight
+ * Licensed under the MIT License
+ * WingSync
+ */
+
+package uk.co.clovetwilight3.wingsync.discord;
+
+/**
+ * Rules for who may link which Minecraft accounts with /register.
+ *
+ * @param maxAccounts     How many accounts one Discord user may link; 0 for no limit
+ * @param claimProtection Stop /register from taking an account already linked to
+ *                        someone else; only the admin can then move it, with /transfer
+ */
+public record LinkPolicy(int maxAccounts, boolean claimProtection) {
+}
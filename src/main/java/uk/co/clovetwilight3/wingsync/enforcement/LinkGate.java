@@ -0,0 +1,302 @@
+/*
+ * Copyright (c) 2025 Clove Twilight
+ * Licensed under the MIT License
+ * WingSync
+ */
+
+package uk.co.clovetwilight3.wingsync.enforcement;
+
+import uk.co.clovetwilight3.wingsync.metrics.MetricsRegistry;
+import uk.co.clovetwilight3.wingsync.storage.StorageBackend;
+import uk.co.clovetwilight3.wingsync.storage.StorageExecutor;
+import uk.co.clovetwilight3.wingsync.util.TtlCache;
+import uk.co.clovetwilight3.wingsync.whitelist.WhitelistReconciler;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Decides whether a player may join: they need a Discord link and, if
+ * configured, current membership of the guild.
+ *
+ * Links are answered from an in-memory map of UUID to Discord ID, rebuilt
+ * from storage on a schedule. A player missing from the map is looked up in
+ * storage once, so someone who has just linked can join straight away, and
+ * a link changed through WingSync is dropped from the map at once. Guild membership is cached per Discord user and refreshed in the background
+ * once stale; only a user never seen before waits on Discord. Every check
+ * is bounded by one timeout, after which the configured default applies.
+ */
+public class LinkGate {
+
+    public static final String JOIN_CHECK = "wingsync_join_check_seconds";
+
+    /**
+     * @param reason Why, for metrics: linked, member, not_linked, not_member or timeout
+     */
+    public record Decision(boolean allowed, String reason) {
+    }
+
+    private record Membership(boolean member, long checkedAt) {
+    }
+
+    private final StorageExecutor storageExecutor;
+    private final Supplier<StorageBackend> storage;
+    private final MembershipLookup membershipLookup;
+    private final Logger logger;
+    private final MetricsRegistry metrics;
+    private final long timeoutMillis;
+    private final boolean allowOnTimeout;
+    private final long membershipTtlMillis;
+    private final long refreshMillis;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "WingSync-LinkGate");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile Map<UUID, String> links = new ConcurrentHashMap<>();
+    // Changes seen while the map is being rebuilt, applied to the new map before it is used
+    private final Object refreshLock = new Object();
+    private boolean refreshing;
+    private final Set<UUID> changedDuringRefresh = new HashSet<>();
+    private final Set<String> unlinkedDuringRefresh = new HashSet<>();
+    // Players looked up and found unlinked, so a reconnect loop does not hit storage every time
+    private final TtlCache<UUID, Boolean> notLinked = new TtlCache<>(10000, TimeUnit.SECONDS.toMillis(10));
+    private final Map<String, Membership> memberships = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Boolean>> membershipChecks = new ConcurrentHashMap<>();
+
+    /**
+     * @param membershipLookup    Checks guild membership, or null to only require a link
+     * @param timeoutMillis       The longest a join may wait for an answer
+     * @param allowOnTimeout      Whether a player is let in when no answer arrives in time
+     * @param membershipTtlMillis How long a membership answer is used before it is refreshed
+     * @param refreshMillis       How often the link map is rebuilt from storage
+     */
+    public LinkGate(StorageExecutor storageExecutor, Supplier<StorageBackend> storage, MembershipLookup membershipLookup,
+                    Logger logger, MetricsRegistry metrics, long timeoutMillis, boolean allowOnTimeout,
+                    long membershipTtlMillis, long refreshMillis) {
+        this.storageExecutor = storageExecutor;
+        this.storage = storage;
+        this.membershipLookup = membershipLookup;
+        this.logger = logger;
+        this.metrics = metrics;
+        this.timeoutMillis = Math.max(1, timeoutMillis);
+        this.allowOnTimeout = allowOnTimeout;
+        this.membershipTtlMillis = Math.max(1, membershipTtlMillis);
+        this.refreshMillis = Math.max(1000, refreshMillis);
+        metrics.help(JOIN_CHECK, "Time taken to decide whether a joining player is linked");
+        metrics.gauge("wingsync_join_gate_links", "", () -> links.size());
+    }
+
+    /**
+     * Build the link map now and keep rebuilding it on a schedule.
+     */
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::refreshLinks, 0, refreshMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Decide whether a player may join. Blocks for at most the configured
+     * timeout, so call it from the async pre-login thread, never the server thread.
+     */
+    public Decision check(UUID uuid) {
+        long start = System.nanoTime();
+        Decision decision = decide(uuid, System.currentTimeMillis() + timeoutMillis);
+        metrics.histogram(JOIN_CHECK, MetricsRegistry.label("result", decision.reason())).recordSince(start);
+        return decision;
+    }
+
+    /**
+     * Record a membership change seen from Discord, e.g. a member leaving.
+     */
+    public void setMembership(String discordId, boolean member) {
+        memberships.put(discordId, new Membership(member, System.currentTimeMillis()));
+    }
+
+    /**
+     * Forget a Discord user whose accounts were just unlinked, rather than
+     * letting them in until the next refresh.
+     */
+    public void unlinked(String discordId) {
+        synchronized (refreshLock) {
+            links.values().removeIf(discordId::equals);
+            if (refreshing) {
+                unlinkedDuringRefresh.add(discordId);
+            }
+        }
+        setMembership(discordId, false);
+    }
+
+    /**
+     * Forget what is known about a player whose link was just added, changed
+     * or removed; their next join reads it from storage.
+     */
+    public void linkChanged(String uuid) {
+        UUID player;
+        try {
+            player = UUID.fromString(uuid);
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+        synchronized (refreshLock) {
+            links.remove(player);
+            if (refreshing) {
+                changedDuringRefresh.add(player);
+            }
+        }
+        notLinked.invalidate(player);
+    }
+
+    private Decision decide(UUID uuid, long deadline) {
+        String discordId = links.get(uuid);
+        if (discordId == null && notLinked.get(uuid) == null) {
+            try {
+                discordId = await(lookupLink(uuid), deadline);
+            } catch (TimeoutException e) {
+                return timedOut();
+            }
+        }
+        if (discordId == null) {
+            return new Decision(false, "not_linked");
+        }
+        if (membershipLookup == null) {
+            return new Decision(true, "linked");
+        }
+
+        Membership membership = memberships.get(discordId);
+        if (membership != null) {
+            if (System.currentTimeMillis() - membership.checkedAt() > membershipTtlMillis) {
+                // Answer from the last check, and refresh it for next time
+                checkMembership(discordId);
+            }
+            return membership.member() ? new Decision(true, "member") : new Decision(false, "not_member");
+        }
+
+        try {
+            boolean member = await(checkMembership(discordId), deadline);
+            return member ? new Decision(true, "member") : new Decision(false, "not_member");
+        } catch (TimeoutException e) {
+            return timedOut();
+        }
+    }
+
+    private Decision timedOut() {
+        return new Decision(allowOnTimeout, "timeout");
+    }
+
+    private CompletableFuture<String> lookupLink(UUID uuid) {
+        return storageExecutor.supply(() -> {
+            StorageBackend backend = storage.get();
+            if (backend == null) {
+                throw new IllegalStateException("Storage is still loading");
+            }
+            String discordId = backend.getDiscordIdByUuid(uuid.toString());
+            if (isLinked(discordId)) {
+                links.put(uuid, discordId);
+                return discordId;
+            }
+            notLinked.put(uuid, Boolean.TRUE);
+            return null;
+        });
+    }
+
+    /**
+     * Start a membership check, sharing one that is already running for the same user.
+     */
+    private CompletableFuture<Boolean> checkMembership(String discordId) {
+        CompletableFuture<Boolean> check = new CompletableFuture<>();
+        CompletableFuture<Boolean> existing = membershipChecks.putIfAbsent(discordId, check);
+        if (existing != null) {
+            return existing;
+        }
+
+        membershipLookup.isMember(discordId).whenComplete((member, error) -> {
+            if (error == null) {
+                setMembership(discordId, member);
+            }
+            membershipChecks.remove(discordId, check);
+
+            if (error != null) {
+                logger.fine("Could not check guild membership for " + discordId + ": " + error.getMessage());
+                check.completeExceptionally(error);
+            } else {
+                check.complete(member);
+            }
+        });
+        return check;
+    }
+
+    /**
+     * @throws TimeoutException If there was no answer by the deadline, including
+     *                          when the lookup failed, so the default applies
+     */
+    private static <T> T await(CompletableFuture<T> future, long deadline) throws TimeoutException {
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining <= 0) {
+            throw new TimeoutException();
+        }
+        try {
+            return future.get(remaining, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw new TimeoutException(e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TimeoutException();
+        }
+    }
+
+    private void refreshLinks() {
+        StorageBackend backend = storage.get();
+        if (backend == null) {
+            return;
+        }
+        synchronized (refreshLock) {
+            refreshing = true;
+        }
+        try {
+            long start = System.nanoTime();
+            Map<UUID, String> fresh = new ConcurrentHashMap<>();
+            backend.forEachLink(link -> {
+                if (isLinked(link.discordId)) {
+                    fresh.put(UUID.fromString(link.uuid), link.discordId);
+                }
+            });
+            synchronized (refreshLock) {
+                // The scan may have read these before they changed
+                changedDuringRefresh.forEach(fresh::remove);
+                fresh.values().removeIf(unlinkedDuringRefresh::contains);
+                links = fresh;
+            }
+            notLinked.clear();
+            metrics.histogram("wingsync_join_gate_refresh_seconds", "").recordSince(start);
+        } catch (Exception e) {
+            logger.warning("Failed to refresh linked players for join checks: " + e.getMessage());
+        } finally {
+            synchronized (refreshLock) {
+                refreshing = false;
+                changedDuringRefresh.clear();
+                unlinkedDuringRefresh.clear();
+            }
+        }
+    }
+
+    private static boolean isLinked(String discordId) {
+        // Players imported from the whitelist have a placeholder instead of a real account
+        return discordId != null && !discordId.equals(WhitelistReconciler.UNLINKED_DISCORD_ID);
+    }
+}
@@ -0,0 +1,22 @@
+/*
+ * Copyright (c) 2025 Clove Twilight
+ * Licensed under the MIT License
+ * WingSync
+ */
+
+package uk.co.clovetwilight3.wingsync.enforcement;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Checks whether a Discord user is currently a member of the server's guild,
+ * typically against the Discord API. Swap in a stub to test without Discord.
+ */
+public interface MembershipLookup {
+
+    /**
+     * @return A future completed with true if the user is a member, false if not,
+     *         or completed exceptionally if membership could not be checked
+     */
+    CompletableFuture<Boolean> isMember(String discordId);
+}
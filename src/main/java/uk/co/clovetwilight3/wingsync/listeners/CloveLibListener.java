@@ -6,7 +6,6 @@
 
 package uk.co.clovetwilight3.wingsync.listeners;
 
-import org.bukkit.Bukkit;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
@@ -27,17 +26,7 @@ public class CloveLibListener implements Listener {
 
         plugin.getLogger().info("Received ban event for " + playerName + " - removing from whitelist...");
 
-        // Remove from whitelist via console command
-        Bukkit.getScheduler().runTask(plugin, () -> {
-            Bukkit.dispatchCommand(Bukkit.getConsoleSender(), "whitelist remove " + playerName);
-        });
-
-        // Remove from our database/storage
-        try {
-            plugin.removePlayerDataByName(playerName);
-            plugin.getLogger().info("Successfully removed " + playerName + " from WingSync whitelist data.");
-        } catch (Exception e) {
-            plugin.getLogger().warning("Failed to remove " + playerName + " from WingSync data: " + e.getMessage());
-        }
+        // Whitelist and storage cleanup is batched and runs off this thread
+        plugin.getBanProcessor().submit(playerName);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2025 Clove Twilight
+ * Licensed under the MIT License
+ * WingSync
+ */
+
+package uk.co.clovetwilight3.wingsync.listeners;
+
+import net.kyori.adventure.text.Component;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import uk.co.clovetwilight3.wingsync.enforcement.LinkGate;
+
+import java.util.function.Supplier;
+
+/**
+ * Turns away players without a Discord link, or who have left the guild,
+ * before they reach the server. Runs on the async pre-login thread, and
+ * {@link LinkGate} bounds how long each check can take.
+ */
+public class LoginListener implements Listener {
+
+    private final LinkGate linkGate;
+    private final Supplier<String> notLinkedMessage;
+    private final Supplier<String> notMemberMessage;
+
+    public LoginListener(LinkGate linkGate, Supplier<String> notLinkedMessage, Supplier<String> notMemberMessage) {
+        this.linkGate = linkGate;
+        this.notLinkedMessage = notLinkedMessage;
+        this.notMemberMessage = notMemberMessage;
+    }
+
+    @EventHandler(priority = EventPriority.NORMAL)
+    public void onAsyncPlayerPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            return;
+        }
+
+        LinkGate.Decision decision = linkGate.check(event.getUniqueId());
+        if (!decision.allowed()) {
+            String message = decision.reason().equals("not_member") ? notMemberMessage.get() : notLinkedMessage.get();
+            event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_WHITELIST, Component.text(message));
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2025 Clove Twilight
+ * Licensed under the MIT License
+ * WingSync
+ */
+
+package uk.co.clovetwilight3.wingsync.metrics;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Holds every WingSync metric: latency histograms, counters and gauges.
+ *
+ * A series is a metric name plus an optional label set, written the way
+ * Prometheus expects it, e.g. {@code command="register"}. Series are created
+ * on first use, so callers just ask for what they want to record.
+ */
+public class MetricsRegistry {
+
+    private record Series(String name, String labels) implements Comparable<Series> {
+        @Override
+        public int compareTo(Series other) {
+            int byName = name.compareTo(other.name);
+            return byName != 0 ? byName : labels.compareTo(other.labels);
+        }
+    }
+
+    private final Map<Series, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private final Map<Series, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<Series, DoubleSupplier> gauges = new ConcurrentHashMap<>();
+    private final Map<String, String> help = new ConcurrentHashMap<>();
+
+    /**
+     * @return A single Prometheus label, with the value escaped
+     */
+    public static String label(String key, String value) {
+        String escaped = value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+        return key + "=\"" + escaped + "\"";
+    }
+
+    public void help(String name, String text) {
+        help.put(name, text);
+    }
+
+    public LatencyHistogram histogram(String name, String labels) {
+        return histograms.computeIfAbsent(new Series(name, labels), series -> new LatencyHistogram());
+    }
+
+    public LongAdder counter(String name, String labels) {
+        return counters.computeIfAbsent(new Series(name, labels), series -> new LongAdder());
+    }
+
+    public void gauge(String name, String labels, DoubleSupplier value) {
+        gauges.put(new Series(name, labels), value);
+    }
+
+    /**
+     * @return Every histogram with the given name, keyed by label set and sorted
+     */
+    public Map<String, LatencyHistogram> histograms(String name) {
+        Map<String, LatencyHistogram> result = new TreeMap<>();
+        histograms.forEach((series, histogram) -> {
+            if (series.name().equals(name)) {
+                result.put(series.labels(), histogram);
+            }
+        });
+        return result;
+    }
+
+    public long counterValue(String name, String labels) {
+        LongAdder counter = counters.get(new Series(name, labels));
+        return counter != null ? counter.sum() : 0;
+    }
+
+    /**
+     * Render every metric in the Prometheus text exposition format.
+     */
+    public String renderPrometheus() {
+        StringBuilder out = new StringBuilder();
+
+        Map<Series, LongAdder> sortedCounters = new TreeMap<>(counters);
+        String lastName = null;
+        for (Map.Entry<Series, LongAdder> entry : sortedCounters.entrySet()) {
+            Series series = entry.getKey();
+            if (!series.name().equals(lastName)) {
+                writeHeader(out, series.name(), "counter");
+                lastName = series.name();
+            }
+            writeSample(out, series.name(), series.labels(), entry.getValue().sum());
+        }
+
+        Map<Series, DoubleSupplier> sortedGauges = new TreeMap<>(gauges);
+        lastName = null;
+        for (Map.Entry<Series, DoubleSupplier> entry : sortedGauges.entrySet()) {
+            Series series = entry.getKey();
+            if (!series.name().equals(lastName)) {
+                writeHeader(out, series.name(), "gauge");
+                lastName = series.name();
+            }
+            writeSample(out, series.name(), series.labels(), entry.getValue().getAsDouble());
+        }
+
+        Map<Series, LatencyHistogram> sortedHistograms = new TreeMap<>(histograms);
+        lastName = null;
+        for (Map.Entry<Series, LatencyHistogram> entry : sortedHistograms.entrySet()) {
+            Series series = entry.getKey();
+            if (!series.name().equals(lastName)) {
+                writeHeader(out, series.name(), "histogram");
+                lastName = series.name();
+            }
+
+            LatencyHistogram histogram = entry.getValue();
+            long[] counts = histogram.bucketCounts();
+            long cumulative = 0;
+            for (int i = 0; i < counts.length; i++) {
+                cumulative += counts[i];
+                String le = i < LatencyHistogram.BOUNDS.length ? formatNumber(LatencyHistogram.BOUNDS[i]) : "+Inf";
+                writeSample(out, series.name() + "_bucket", join(series.labels(), label("le", le)), cumulative);
+            }
+            writeSample(out, series.name() + "_sum", series.labels(), histogram.sumSeconds());
+            writeSample(out, series.name() + "_count", series.labels(), cumulative);
+        }
+
+        return out.toString();
+    }
+
+    private void writeHeader(StringBuilder out, String name, String type) {
+        String text = help.get(name);
+        if (text != null) {
+            out.append("# HELP ").append(name).append(' ').append(text).append('\n');
+        }
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void writeSample(StringBuilder out, String name, String labels, double value) {
+        out.append(name);
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ').append(formatNumber(value)).append('\n');
+    }
+
+    private static String join(String labels, String extra) {
+        return labels.isEmpty() ? extra : labels + "," + extra;
+    }
+
+    private static String formatNumber(double value) {
+        if (value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return String.format(Locale.ROOT, "%s", value);
+    }
+}
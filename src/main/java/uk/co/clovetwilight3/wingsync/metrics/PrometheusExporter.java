@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2025 Clove Twilight
+ * Licensed under the MIT License
+ * WingSync
+ */
+
+package uk.co.clovetwilight3.wingsync.metrics;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Publishes a {@link MetricsRegistry} in the Prometheus text format, either as
+ * a file rewritten on a schedule (for node_exporter's textfile collector) or
+ * from a small local HTTP endpoint, or both.
+ */
+public class PrometheusExporter {
+
+    private final MetricsRegistry metrics;
+    private final Logger logger;
+    private ScheduledExecutorService fileWriter;
+    private HttpServer httpServer;
+    private ExecutorService httpExecutor;
+
+    public PrometheusExporter(MetricsRegistry metrics, Logger logger) {
+        this.metrics = metrics;
+        this.logger = logger;
+    }
+
+    /**
+     * Rewrite the given file every interval. The file is replaced atomically so
+     * a scraper never reads a half-written one.
+     */
+    public void startFile(Path file, long intervalSeconds) {
+        fileWriter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "WingSync-Metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        fileWriter.scheduleWithFixedDelay(() -> writeFile(file), intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Serve metrics at http://bindAddress:port/metrics.
+     */
+    public void startHttp(String bindAddress, int port) throws IOException {
+        httpServer = HttpServer.create(new InetSocketAddress(bindAddress, port), 0);
+        httpServer.createContext("/metrics", exchange -> {
+            byte[] body = metrics.renderPrometheus().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        httpExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "WingSync-Metrics-HTTP");
+            thread.setDaemon(true);
+            return thread;
+        });
+        httpServer.setExecutor(httpExecutor);
+        httpServer.start();
+        logger.info("Serving metrics on http://" + bindAddress + ":" + port + "/metrics");
+    }
+
+    public void stop() {
+        if (fileWriter != null) {
+            fileWriter.shutdownNow();
+        }
+        if (httpServer != null) {
+            httpServer.stop(0);
+            httpExecutor.shutdownNow();
+        }
+    }
+
+    private void writeFile(Path file) {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.writeString(temp, metrics.renderPrometheus(), StandardCharsets.UTF_8);
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            logger.warning("Failed to write metrics file: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2025 Clove Twilight
+ * Licensed under the MIT License
+ * WingSync
+ */
+
+package uk.co.clovetwilight3.wingsync.network;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the wingsync_changes table that {@link uk.co.clovetwilight3.wingsync.storage.MySqlStorage}
+ * appends to in network mode.
+ *
+ * Reads are range scans on the primary key, so catching up costs time in
+ * proportion to the number of new changes, not the size of the link table.
+ */
+public class ChangeFeed {
+
+    private final DataSource dataSource;
+
+    public ChangeFeed(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * @return Up to limit changes newer than the given version, oldest first
+     */
+    public List<WhitelistChange> since(long version, int limit) throws SQLException {
+        List<WhitelistChange> changes = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT version, uuid, username, whitelisted, origin, discord_id, previous_discord_id FROM wingsync_changes "
+                             + "WHERE version > ? ORDER BY version LIMIT ?")) {
+            stmt.setLong(1, version);
+            stmt.setInt(2, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    changes.add(new WhitelistChange(rs.getLong("version"), rs.getString("uuid"),
+                            rs.getString("username"), rs.getBoolean("whitelisted"), rs.getString("origin"),
+                            rs.getString("discord_id"), rs.getString("previous_discord_id")));
+                }
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * @return The newest version in the feed, or 0 if it is empty
+     */
+    public long latestVersion() throws SQLException {
+        return aggregate("SELECT MAX(version) FROM wingsync_changes");
+    }
+
+    /**
+     * @return The oldest version still in the feed, or 0 if it is empty
+     */
+    public long oldestVersion() throws SQLException {
+        return aggregate("SELECT MIN(version) FROM wingsync_changes");
+    }
+
+    /**
+     * Delete changes older than the retention period, a chunk at a time so
+     * the table is never locked for long.
+     * @return How many changes were deleted
+     */
+    public int prune(int retentionHours) throws SQLException {
+        int total = 0;
+        int deleted;
+        do {
+            try (Connection conn = dataSource.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(
+                         "DELETE FROM wingsync_changes WHERE changed_at < TIMESTAMPADD(HOUR, ?, CURRENT_TIMESTAMP) LIMIT 5000")) {
+                stmt.setInt(1, -retentionHours);
+                deleted = stmt.executeUpdate();
+            }
+            total += deleted;
+        } while (deleted == 5000);
+        return total;
+    }
+
+    private long aggregate(String sql) throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+}
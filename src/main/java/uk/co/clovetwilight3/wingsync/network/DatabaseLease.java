@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2025 Clove Twilight
+ * Licensed under the MIT License
+ * WingSync
+ */
+
+package uk.co.clovetwilight3.wingsync.network;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * A named lease in the wingsync_lease table, held by at most one node at a time.
+ *
+ * Expiry is computed with the database's clock, so servers with drifting
+ * clocks still agree on who holds it.
+ */
+public class DatabaseLease {
+
+    private final DataSource dataSource;
+    private final String name;
+    private final String owner;
+    private final int leaseSeconds;
+
+    public DatabaseLease(DataSource dataSource, String name, String owner, int leaseSeconds) {
+        this.dataSource = dataSource;
+        this.name = name;
+        this.owner = owner;
+        this.leaseSeconds = Math.max(1, leaseSeconds);
+    }
+
+    /**
+     * Take the lease if it is free or expired, or extend it if we already hold it.
+     * @return True if this node holds the lease for the next leaseSeconds
+     */
+    public boolean tryAcquire() throws SQLException {
+        try (Connection conn = dataSource.getConnection()) {
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT IGNORE INTO wingsync_lease (name, owner, expires_at) "
+                            + "VALUES (?, ?, TIMESTAMPADD(SECOND, ?, CURRENT_TIMESTAMP))")) {
+                stmt.setString(1, name);
+                stmt.setString(2, owner);
+                stmt.setInt(3, leaseSeconds);
+                if (stmt.executeUpdate() == 1) {
+                    return true;
+                }
+            }
+
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "UPDATE wingsync_lease SET owner = ?, expires_at = TIMESTAMPADD(SECOND, ?, CURRENT_TIMESTAMP) "
+                            + "WHERE name = ? AND (owner = ? OR expires_at < CURRENT_TIMESTAMP)")) {
+                stmt.setString(1, owner);
+                stmt.setInt(2, leaseSeconds);
+                stmt.setString(3, name);
+                stmt.setString(4, owner);
+                return stmt.executeUpdate() == 1;
+            }
+        }
+    }
+
+    /**
+     * Give the lease up early so another node can take over straight away.
+     */
+    public void release() throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "DELETE FROM wingsync_lease WHERE name = ? AND owner = ?")) {
+            stmt.setString(1, name);
+            stmt.setString(2, owner);
+            stmt.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,299 @@
+/*
+ * Copyright (c) 2025 Clove Twilight
+ * Licensed under the MIT License
+ * WingSync
+ */
+
+package uk.co.clovetwilight3.wingsync.network;
+
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import uk.co.clovetwilight3.wingsync.metrics.MetricsRegistry;
+import uk.co.clovetwilight3.wingsync.whitelist.WhitelistQueue;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Keeps this server's whitelist in step with the other servers sharing the
+ * MySQL database, and decides which of them runs the Discord bot.
+ *
+ * Every few seconds it reads the changes made since the last version it saw
+ * and queues them on the {@link WhitelistQueue}, which applies them in
+ * batches on the server thread. Changes this node made itself are skipped.
+ * The last version seen is saved to disk so a restart only catches up on
+ * what it missed.
+ *
+ * Versions come from AUTO_INCREMENT, so a change can become visible after a
+ * newer one if its transaction commits later. A gap in the versions is
+ * therefore waited on for a while before it is given up as a rolled-back
+ * write, and changes above the gap are not applied twice meanwhile.
+ *
+ * Separately, the node holding the "discord" lease owns the bot session; it
+ * renews the lease well before it expires and is told to stop the bot if it
+ * cannot.
+ */
+public class NetworkSync {
+
+    private static final String LEASE_NAME = "discord";
+    private static final long GAP_TIMEOUT_MILLIS = 30_000;
+
+    private final ChangeFeed feed;
+    private final DatabaseLease lease;
+    private final String nodeId;
+    private final Path stateFile;
+    private final WhitelistQueue whitelistQueue;
+    private final Logger logger;
+    private final MetricsRegistry metrics;
+    private final long pollIntervalMillis;
+    private final int batchSize;
+    private final long leaseMillis;
+    private final int retentionHours;
+    private final Consumer<Boolean> onLeadershipChange;
+    private final List<Consumer<WhitelistChange>> changeListeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "WingSync-Network");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Only touched from the scheduler thread
+    private volatile long watermark;
+    private final TreeSet<Long> appliedAboveWatermark = new TreeSet<>();
+    private long gapSeenAt;
+    private long lastRenewedAt;
+    private long lastPrunedAt;
+    private volatile boolean leader;
+
+    /**
+     * @param stateFile          Where the last seen version is kept between restarts
+     * @param onLeadershipChange Called on the network thread with true when this node
+     *                           takes the Discord lease and false when it loses it
+     */
+    public NetworkSync(DataSource dataSource, String nodeId, Path stateFile, WhitelistQueue whitelistQueue,
+                       Logger logger, MetricsRegistry metrics, long pollIntervalMillis, int batchSize,
+                       int leaseSeconds, int retentionHours, Consumer<Boolean> onLeadershipChange) {
+        this.feed = new ChangeFeed(dataSource);
+        this.lease = new DatabaseLease(dataSource, LEASE_NAME, nodeId, leaseSeconds);
+        this.nodeId = nodeId;
+        this.stateFile = stateFile;
+        this.whitelistQueue = whitelistQueue;
+        this.logger = logger;
+        this.metrics = metrics;
+        this.pollIntervalMillis = Math.max(100, pollIntervalMillis);
+        this.batchSize = Math.max(1, batchSize);
+        this.leaseMillis = TimeUnit.SECONDS.toMillis(Math.max(3, leaseSeconds));
+        this.retentionHours = Math.max(1, retentionHours);
+        this.onLeadershipChange = onLeadershipChange;
+        metrics.gauge("wingsync_network_leader", "", () -> leader ? 1 : 0);
+        metrics.gauge("wingsync_network_version", "", () -> watermark);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public boolean isLeader() {
+        return leader;
+    }
+
+    /**
+     * Be told, on the network thread, of every change made by another server.
+     */
+    public void addChangeListener(Consumer<WhitelistChange> listener) {
+        changeListeners.add(listener);
+    }
+
+    public void start() {
+        scheduler.execute(this::loadWatermark);
+        scheduler.scheduleWithFixedDelay(this::pollQuietly, 0, pollIntervalMillis, TimeUnit.MILLISECONDS);
+        // Renew at a third of the lease so two missed renewals still leave time to step down
+        scheduler.scheduleWithFixedDelay(this::renewLease, 0, leaseMillis / 3, TimeUnit.MILLISECONDS);
+        logger.info("Network mode enabled as node " + nodeId + ".");
+    }
+
+    /**
+     * Stop polling and hand the Discord lease to another node.
+     */
+    public void close() {
+        scheduler.shutdownNow();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (leader) {
+            leader = false;
+            try {
+                lease.release();
+            } catch (SQLException e) {
+                logger.warning("MySQL Error: " + e.getMessage());
+            }
+        }
+    }
+
+    private void loadWatermark() {
+        try {
+            if (Files.exists(stateFile)) {
+                watermark = Long.parseLong(Files.readString(stateFile, StandardCharsets.UTF_8).trim());
+                long oldest = feed.oldestVersion();
+                if (oldest > watermark + 1) {
+                    logger.warning("This server was offline for longer than the change feed is kept. "
+                            + "Whitelist changes made on other servers in that time were missed.");
+                }
+            } else {
+                // A new node starts from now; its whitelist is assumed to be current
+                watermark = feed.latestVersion();
+                saveWatermark();
+            }
+        } catch (IOException | NumberFormatException | SQLException e) {
+            logger.warning("Failed to load network sync state: " + e.getMessage());
+        }
+    }
+
+    private void pollQuietly() {
+        try {
+            poll();
+        } catch (SQLException e) {
+            logger.warning("MySQL Error: " + e.getMessage());
+        } catch (Exception e) {
+            logger.warning("Failed to apply network whitelist changes: " + e.getMessage());
+        }
+    }
+
+    private void poll() throws SQLException, IOException {
+        long start = System.nanoTime();
+        long before = watermark;
+        int applied = 0;
+
+        List<WhitelistChange> changes;
+        long pageStart;
+        do {
+            pageStart = watermark;
+            changes = feed.since(watermark, batchSize);
+            for (WhitelistChange change : changes) {
+                if (!appliedAboveWatermark.add(change.version())) {
+                    continue;
+                }
+                if (!nodeId.equals(change.origin())) {
+                    apply(change);
+                    applied++;
+                }
+            }
+            advanceWatermark();
+            // Keep paging while each page moves us forward
+        } while (changes.size() == batchSize && watermark > pageStart && !Thread.currentThread().isInterrupted());
+
+        if (watermark != before) {
+            saveWatermark();
+        }
+        if (applied > 0) {
+            metrics.counter("wingsync_network_changes_applied_total", "").add(applied);
+            logger.info("Applied " + applied + " whitelist change(s) from other servers.");
+        }
+        metrics.histogram("wingsync_network_poll_seconds", "").recordSince(start);
+    }
+
+    private void apply(WhitelistChange change) {
+        for (Consumer<WhitelistChange> listener : changeListeners) {
+            listener.accept(change);
+        }
+
+        UUID uuid = UUID.fromString(change.uuid());
+        // Prefer the cached player so the whitelist entry keeps its name
+        OfflinePlayer cachedPlayer = Bukkit.getOfflinePlayerIfCached(change.username());
+        OfflinePlayer player = cachedPlayer != null && uuid.equals(cachedPlayer.getUniqueId())
+                ? cachedPlayer
+                : Bukkit.getOfflinePlayer(uuid);
+
+        if (change.whitelisted()) {
+            whitelistQueue.add(player);
+        } else {
+            whitelistQueue.remove(player);
+        }
+    }
+
+    private void advanceWatermark() {
+        while (!appliedAboveWatermark.isEmpty() && appliedAboveWatermark.first() == watermark + 1) {
+            watermark = appliedAboveWatermark.pollFirst();
+        }
+
+        if (appliedAboveWatermark.isEmpty()) {
+            gapSeenAt = 0;
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        if (gapSeenAt == 0) {
+            gapSeenAt = now;
+        } else if (now - gapSeenAt > GAP_TIMEOUT_MILLIS) {
+            // Long enough that the missing version was rolled back, not just slow to commit
+            watermark = appliedAboveWatermark.first() - 1;
+            gapSeenAt = 0;
+            advanceWatermark();
+        }
+    }
+
+    private void saveWatermark() throws IOException {
+        Path temp = stateFile.resolveSibling(stateFile.getFileName() + ".tmp");
+        Files.writeString(temp, Long.toString(watermark), StandardCharsets.UTF_8);
+        try {
+            Files.move(temp, stateFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, stateFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void renewLease() {
+        long now = System.currentTimeMillis();
+        boolean held;
+        try {
+            held = lease.tryAcquire();
+            if (held) {
+                lastRenewedAt = now;
+            }
+        } catch (SQLException e) {
+            logger.warning("MySQL Error: " + e.getMessage());
+            // Keep the bot only while the last successful renewal is still comfortably valid
+            held = leader && now - lastRenewedAt < leaseMillis / 2;
+        }
+
+        if (held != leader) {
+            leader = held;
+            logger.info(held ? "This server now runs the Discord bot for the network."
+                    : "Another server has taken over the Discord bot.");
+            try {
+                onLeadershipChange.accept(held);
+            } catch (Exception e) {
+                logger.warning("Failed to hand over the Discord bot: " + e.getMessage());
+            }
+        }
+
+        if (held && now - lastPrunedAt > TimeUnit.HOURS.toMillis(1)) {
+            lastPrunedAt = now;
+            try {
+                int pruned = feed.prune(retentionHours);
+                if (pruned > 0) {
+                    logger.info("Pruned " + pruned + " old network change(s).");
+                }
+            } catch (SQLException e) {
+                logger.warning("MySQL Error: " + e.getMessage());
+            }
+        }
+    }
+}
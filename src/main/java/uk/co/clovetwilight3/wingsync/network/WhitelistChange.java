@@ -0,0 +1,21 @@
+/*
+ * Copyright (c) 2025 Clove Twilight
+ * Licensed under the MIT License
+ * WingSync
+ */
+
+package uk.co.clovetwilight3.wingsync.network;
+
+/**
+ * One row of the wingsync_changes feed.
+ *
+ * @param version     Position in the feed; higher is newer
+ * @param whitelisted True for a link (whitelist add), false for an unlink (whitelist remove)
+ * @param origin      Node ID of the server that made the change
+ * @param discordId         Who the account is linked to after the change, or null if unlinked
+ * @param previousDiscordId Who it was linked to before, or null if it was not linked. Both are null
+ *                          for changes written before the feed recorded them.
+ */
+public record WhitelistChange(long version, String uuid, String username, boolean whitelisted, String origin,
+                              String discordId, String previousDiscordId) {
+}
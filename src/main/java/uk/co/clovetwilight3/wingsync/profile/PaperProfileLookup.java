@@ -0,0 +1,25 @@
+/*
+ * Copyright (c) 2025 Clove Twilight
+ * Licensed under the MIT License
+ * WingSync
+ */
+
+package uk.co.clovetwilight3.wingsync.profile;
+
+import com.destroystokyo.paper.profile.PlayerProfile;
+import org.bukkit.Bukkit;
+
+import java.util.UUID;
+
+/**
+ * Resolves names through Paper's profile API, which honours the server's
+ * online-mode setting and its configured session service.
+ */
+public class PaperProfileLookup implements ProfileLookup {
+
+    @Override
+    public UUID lookup(String name) {
+        PlayerProfile profile = Bukkit.createProfile(name);
+        return profile.complete(false) ? profile.getId() : null;
+    }
+}
@@ -0,0 +1,23 @@
+/*
+ * Copyright (c) 2025 Clove Twilight
+ * Licensed under the MIT License
+ * WingSync
+ */
+
+package uk.co.clovetwilight3.wingsync.profile;
+
+import java.util.UUID;
+
+/**
+ * Looks up a Minecraft account by name, typically against the Mojang profile
+ * service. Implementations may block; {@link UuidResolver} only ever calls
+ * them off the server thread. Swap in a stub to test without network access.
+ */
+public interface ProfileLookup {
+
+    /**
+     * @return The account's UUID, or null if no account has that name
+     * @throws Exception If the lookup itself failed, so the result should not be cached
+     */
+    UUID lookup(String name) throws Exception;
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2025 Clove Twilight
+ * Licensed under the MIT License
+ * WingSync
+ */
+
+package uk.co.clovetwilight3.wingsync.profile;
+
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import uk.co.clovetwilight3.wingsync.storage.StorageBackend;
+import uk.co.clovetwilight3.wingsync.storage.StorageExecutor;
+import uk.co.clovetwilight3.wingsync.util.TtlCache;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Turns Minecraft names into UUIDs without touching the server thread.
+ *
+ * Sources are tried cheapest first: our own link store, the server's user
+ * cache, then a {@link ProfileLookup}. Results are cached with a TTL, and
+ * names that do not exist are cached separately for a shorter time.
+ * Concurrent requests for the same name share one lookup.
+ */
+public class UuidResolver {
+
+    private final StorageExecutor storageExecutor;
+    private final Supplier<StorageBackend> storage;
+    private final ProfileLookup profileLookup;
+
+    private final TtlCache<String, UUID> resolved;
+    private final TtlCache<String, Boolean> unknown;
+    private final Map<String, CompletableFuture<UUID>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * @param storage          Supplies the current storage backend, or null while it is loading
+     * @param cacheSize        Maximum number of names kept in each cache
+     * @param ttlMillis        How long a resolved name is trusted
+     * @param negativeTtlMillis How long a name is remembered as not existing
+     */
+    public UuidResolver(StorageExecutor storageExecutor, Supplier<StorageBackend> storage, ProfileLookup profileLookup,
+                        int cacheSize, long ttlMillis, long negativeTtlMillis) {
+        this.storageExecutor = storageExecutor;
+        this.storage = storage;
+        this.profileLookup = profileLookup;
+        this.resolved = new TtlCache<>(cacheSize, ttlMillis);
+        this.unknown = new TtlCache<>(cacheSize, negativeTtlMillis);
+    }
+
+    /**
+     * @return A future completed with the UUID, or with null if no account has that name
+     */
+    public CompletableFuture<UUID> resolve(String name) {
+        String key = name.toLowerCase(Locale.ROOT);
+
+        UUID cached = resolved.get(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        if (unknown.get(key) != null) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        CompletableFuture<UUID> lookup = new CompletableFuture<>();
+        CompletableFuture<UUID> existing = inFlight.putIfAbsent(key, lookup);
+        if (existing != null) {
+            return existing;
+        }
+
+        storageExecutor.supply(() -> lookup(name)).whenComplete((uuid, error) -> {
+            if (error == null) {
+                if (uuid != null) {
+                    resolved.put(key, uuid);
+                } else {
+                    unknown.put(key, Boolean.TRUE);
+                }
+            }
+            inFlight.remove(key, lookup);
+
+            if (error != null) {
+                lookup.completeExceptionally(error);
+            } else {
+                lookup.complete(uuid);
+            }
+        });
+        return lookup;
+    }
+
+    /**
+     * Resolve a name to an {@link OfflinePlayer} suitable for whitelist changes.
+     * @return A future completed with the player, or with null if no account has that name
+     */
+    public CompletableFuture<OfflinePlayer> resolvePlayer(String name) {
+        return resolve(name).thenApply(uuid -> {
+            if (uuid == null) {
+                return null;
+            }
+            // Prefer the cached player so the whitelist entry keeps its name
+            OfflinePlayer cachedPlayer = Bukkit.getOfflinePlayerIfCached(name);
+            if (cachedPlayer != null && uuid.equals(cachedPlayer.getUniqueId())) {
+                return cachedPlayer;
+            }
+            return Bukkit.getOfflinePlayer(uuid);
+        });
+    }
+
+    /**
+     * Record a known name to UUID mapping, e.g. after a successful link.
+     */
+    public void remember(String name, UUID uuid) {
+        String key = name.toLowerCase(Locale.ROOT);
+        unknown.invalidate(key);
+        resolved.put(key, uuid);
+    }
+
+    /**
+     * Drop expired names now, so names looked up once do not sit in the caches
+     * until they are pushed out.
+     */
+    public void purgeExpired() {
+        resolved.purgeExpired();
+        unknown.purgeExpired();
+    }
+
+    private UUID lookup(String name) {
+        StorageBackend backend = storage.get();
+        if (backend != null) {
+            String linked = backend.getUuidByUsername(name);
+            if (linked != null) {
+                return UUID.fromString(linked);
+            }
+        }
+
+        OfflinePlayer cachedPlayer = Bukkit.getOfflinePlayerIfCached(name);
+        if (cachedPlayer != null) {
+            return cachedPlayer.getUniqueId();
+        }
+
+        try {
+            return profileLookup.lookup(name);
+        } catch (Exception e) {
+            throw new RuntimeException("Profile lookup failed for " + name, e);
+        }
+    }
+}
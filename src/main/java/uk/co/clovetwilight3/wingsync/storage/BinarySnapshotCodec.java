@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2025 Clove Twilight
+ * Licensed under the MIT License
+ * WingSync
+ */
+
+package uk.co.clovetwilight3.wingsync.storage;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * playerdata.bin: a compact binary snapshot that is memory-mapped to load.
+ *
+ * Layout, big-endian: magic, version and record count as ints, then each
+ * record as the UUID's two longs, linkedAt, and the username, Discord ID and
+ * Discord username as an unsigned short length followed by UTF-8 bytes
+ * (0xFFFF for null). A CRC32 of everything before it ends the file.
+ */
+class BinarySnapshotCodec implements SnapshotCodec {
+
+    private static final int MAGIC = 0x57534E50; // "WSNP"
+    private static final int VERSION = 1;
+    private static final int NULL_LENGTH = 0xFFFF;
+
+    @Override
+    public String fileName() {
+        return "playerdata.bin";
+    }
+
+    @Override
+    public int read(Path file, Consumer<PlayerData> sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(fileName() + " is too large to map");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return read(buffer, sink);
+        }
+    }
+
+    private int read(ByteBuffer buffer, Consumer<PlayerData> sink) throws IOException {
+        // Nothing has been read yet, so the loader can fall back to the other snapshot
+        if (buffer.remaining() < 20 || buffer.getInt(0) != MAGIC) {
+            throw new CorruptSnapshotException(fileName(), 0, new IOException("not a WingSync snapshot"));
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new CorruptSnapshotException(fileName(), 0, new IOException("unsupported version " + buffer.getInt(4)));
+        }
+
+        int bodyEnd = buffer.limit() - Long.BYTES;
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(0, bodyEnd));
+        boolean checksumOk = crc.getValue() == buffer.getLong(bodyEnd);
+
+        int count = buffer.getInt(8);
+        buffer.position(12).limit(bodyEnd);
+        int read = 0;
+        try {
+            // A bad checksum still gets a best-effort read; each record is validated on load
+            for (; read < count; read++) {
+                PlayerData data = new PlayerData(new UUID(buffer.getLong(), buffer.getLong()).toString(), null, null, null);
+                data.linkedAt = buffer.getLong();
+                data.username = readString(buffer);
+                data.discordId = readString(buffer);
+                data.discordUsername = readString(buffer);
+                sink.accept(data);
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new CorruptSnapshotException(fileName(), count - read,
+                    new IOException("ends after " + read + " of " + count + " records"));
+        }
+
+        if (!checksumOk) {
+            throw new CorruptSnapshotException(fileName(), 0, new IOException("checksum mismatch"));
+        }
+        return 0;
+    }
+
+    @Override
+    public void write(Path file, Collection<PlayerData> records) throws IOException {
+        CRC32 crc = new CRC32();
+        try (FileOutputStream fileOut = new FileOutputStream(file.toFile())) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(fileOut, crc), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(records.size());
+            for (PlayerData data : records) {
+                UUID uuid = UUID.fromString(data.uuid);
+                out.writeLong(uuid.getMostSignificantBits());
+                out.writeLong(uuid.getLeastSignificantBits());
+                out.writeLong(data.linkedAt);
+                writeString(out, data.username);
+                writeString(out, data.discordId);
+                writeString(out, data.discordUsername);
+            }
+            out.flush();
+
+            // Written past the checksummed stream so it does not cover itself
+            fileOut.write(ByteBuffer.allocate(Long.BYTES).putLong(crc.getValue()).array());
+            fileOut.getFD().sync();
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xFFFF;
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeShort(NULL_LENGTH);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length >= NULL_LENGTH) {
+            throw new IOException("Value too long for the binary snapshot: " + value.length() + " characters");
+        }
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+}
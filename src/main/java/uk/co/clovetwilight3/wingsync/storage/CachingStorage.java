@@ -0,0 +1,283 @@
+/*
+ * Copyright (c) 2025 Clove Twilight
+ * Licensed under the MIT License
+ * WingSync
+ */
+
+package uk.co.clovetwilight3.wingsync.storage;
+
+import uk.co.clovetwilight3.wingsync.metrics.MetricsRegistry;
+import uk.co.clovetwilight3.wingsync.util.TtlCache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * Wraps a {@link StorageBackend} and answers the lookups behind /whois,
+ * /whomc and the join check from memory.
+ *
+ * Misses are cached too, so unlinked players do not reach the database on
+ * every join. Writes made through this wrapper update or drop the affected
+ * entries straight away. Writes made by other servers are dropped when the
+ * network change feed reports them, see {@link #invalidateRemote}; without
+ * network mode the time to live bounds how stale an entry can be.
+ *
+ * A lookup that raced with a write is returned but not cached, so a value
+ * read before the write cannot be stored after it.
+ */
+public class CachingStorage implements StorageBackend {
+
+    // Stands in for "not linked", as the caches cannot hold null
+    private static final PlayerData NOT_LINKED = new PlayerData("", "", null, null);
+    private static final String NO_DISCORD_USERNAME = "";
+
+    private final StorageBackend delegate;
+    private final TtlCache<String, PlayerData> links;
+    private final TtlCache<String, String> discordUsernames;
+    private final TtlCache<String, List<String>> usernames;
+
+    // Guarded by lock
+    private final Object lock = new Object();
+    private int writesInFlight;
+    private long writeEpoch;
+
+    /**
+     * @param maxSize   How many entries each cache holds at most
+     * @param ttlMillis How long an entry is trusted before it is read again
+     */
+    public CachingStorage(StorageBackend delegate, MetricsRegistry metrics, int maxSize, long ttlMillis) {
+        this.delegate = delegate;
+        this.links = new TtlCache<>(maxSize, ttlMillis);
+        this.discordUsernames = new TtlCache<>(maxSize, ttlMillis);
+        this.usernames = new TtlCache<>(maxSize, ttlMillis);
+        registerGauges(metrics, "links", links);
+        registerGauges(metrics, "discord_usernames", discordUsernames);
+        registerGauges(metrics, "usernames", usernames);
+    }
+
+    /**
+     * @return The backend being cached
+     */
+    public StorageBackend getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Forget what is cached about a player another server has changed.
+     *
+     * @param discordId         Who the player is linked to now, or null
+     * @param previousDiscordId Who they were linked to before, or null
+     */
+    public void invalidateRemote(String uuid, String username, String discordId, String previousDiscordId) {
+        synchronized (lock) {
+            writeEpoch++;
+            links.invalidate(uuid);
+            if (username != null) {
+                discordUsernames.invalidate(key(username));
+            }
+            if (discordId == null && previousDiscordId == null) {
+                // Written before the feed recorded Discord IDs, so any user may be involved
+                usernames.clear();
+                return;
+            }
+            if (discordId != null) {
+                usernames.invalidate(discordId);
+            }
+            if (previousDiscordId != null) {
+                usernames.invalidate(previousDiscordId);
+            }
+        }
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public String describe() {
+        return delegate.describe() + " (cache: " + Math.round(links.hitRatio() * 100) + "% hits, "
+                + links.size() + "/" + links.maxSize() + " links)";
+    }
+
+    @Override
+    public void storePlayerData(String uuid, String username, String discordId, String discordUsername) {
+        PlayerData old = getLink(uuid);
+        write(() -> delegate.storePlayerData(uuid, username, discordId, discordUsername), () -> {
+            links.put(uuid, new PlayerData(uuid, username, discordId, discordUsername));
+            discordUsernames.invalidate(key(username));
+            usernames.invalidate(discordId);
+            if (old != null) {
+                discordUsernames.invalidate(key(old.username));
+                usernames.invalidate(old.discordId);
+            }
+        });
+    }
+
+    @Override
+    public LinkResult linkPlayer(String uuid, String username, String discordId, String discordUsername,
+                                 int maxAccounts, boolean takeOver) {
+        LinkResult[] result = new LinkResult[1];
+        write(() -> result[0] = delegate.linkPlayer(uuid, username, discordId, discordUsername, maxAccounts, takeOver), () -> {
+            if (result[0].status() != LinkResult.Status.LINKED) {
+                return;
+            }
+            PlayerData old = result[0].previous();
+            links.put(uuid, new PlayerData(uuid, username, discordId, discordUsername));
+            discordUsernames.invalidate(key(username));
+            usernames.invalidate(discordId);
+            if (old != null) {
+                discordUsernames.invalidate(key(old.username));
+                usernames.invalidate(old.discordId);
+            }
+        });
+        return result[0];
+    }
+
+    @Override
+    public void removePlayerData(String uuid) {
+        PlayerData old = getLink(uuid);
+        write(() -> delegate.removePlayerData(uuid), () -> {
+            links.put(uuid, NOT_LINKED);
+            if (old != null) {
+                discordUsernames.invalidate(key(old.username));
+                usernames.invalidate(old.discordId);
+            }
+        });
+    }
+
+    @Override
+    public void storePlayerDataBatch(Collection<PlayerData> batch) {
+        write(() -> delegate.storePlayerDataBatch(batch), this::clearAll);
+    }
+
+    @Override
+    public void removePlayerDataBatch(Collection<String> uuids) {
+        write(() -> delegate.removePlayerDataBatch(uuids), this::clearAll);
+    }
+
+    @Override
+    public List<PlayerData> getLinksAfter(String afterUuid, int limit) {
+        return delegate.getLinksAfter(afterUuid, limit);
+    }
+
+    @Override
+    public List<String> getUsernamesByDiscordId(String discordId) {
+        return cached(usernames, discordId,
+                () -> Collections.unmodifiableList(new ArrayList<>(delegate.getUsernamesByDiscordId(discordId))));
+    }
+
+    @Override
+    public List<String> getUuidsByDiscordId(String discordId) {
+        return delegate.getUuidsByDiscordId(discordId);
+    }
+
+    @Override
+    public String getDiscordUsernameByMinecraftUsername(String username) {
+        String discordUsername = cached(discordUsernames, key(username), () -> {
+            String loaded = delegate.getDiscordUsernameByMinecraftUsername(username);
+            return loaded != null ? loaded : NO_DISCORD_USERNAME;
+        });
+        return discordUsername.equals(NO_DISCORD_USERNAME) ? null : discordUsername;
+    }
+
+    @Override
+    public String getDiscordIdByUuid(String uuid) {
+        PlayerData link = getLink(uuid);
+        return link != null ? link.discordId : null;
+    }
+
+    /**
+     * @return The cached link, which is shared and must not be modified
+     */
+    @Override
+    public PlayerData getLink(String uuid) {
+        PlayerData link = cached(links, uuid, () -> {
+            PlayerData loaded = delegate.getLink(uuid);
+            return loaded != null ? loaded : NOT_LINKED;
+        });
+        return link == NOT_LINKED ? null : link;
+    }
+
+    @Override
+    public String getUuidByUsername(String username) {
+        return delegate.getUuidByUsername(username);
+    }
+
+    @Override
+    public List<PlayerData> getLinksByUsernames(Collection<String> usernames) {
+        return delegate.getLinksByUsernames(usernames);
+    }
+
+    @Override
+    public void close() {
+        clearAll();
+        delegate.close();
+    }
+
+    private <V> V cached(TtlCache<String, V> cache, String key, Supplier<V> loader) {
+        V value = cache.get(key);
+        if (value != null) {
+            return value;
+        }
+
+        long epoch;
+        synchronized (lock) {
+            epoch = writeEpoch;
+        }
+        value = loader.get();
+        synchronized (lock) {
+            if (writesInFlight == 0 && writeEpoch == epoch) {
+                cache.put(key, value);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Run a write, then bring the caches up to date with it. If the write
+     * fails it may still have partly applied, so everything is dropped.
+     */
+    private void write(Runnable write, Runnable update) {
+        synchronized (lock) {
+            writesInFlight++;
+            writeEpoch++;
+        }
+        try {
+            write.run();
+        } catch (RuntimeException e) {
+            synchronized (lock) {
+                clearAll();
+                writesInFlight--;
+            }
+            throw e;
+        }
+        synchronized (lock) {
+            update.run();
+            writesInFlight--;
+        }
+    }
+
+    private void clearAll() {
+        links.clear();
+        discordUsernames.clear();
+        usernames.clear();
+    }
+
+    private static String key(String username) {
+        return username != null ? username.toLowerCase(Locale.ROOT) : "";
+    }
+
+    private static void registerGauges(MetricsRegistry metrics, String name, TtlCache<?, ?> cache) {
+        String labels = MetricsRegistry.label("cache", name);
+        metrics.gauge("wingsync_storage_cache_hits", labels, cache::hits);
+        metrics.gauge("wingsync_storage_cache_misses", labels, cache::misses);
+        metrics.gauge("wingsync_storage_cache_evictions", labels, cache::evictions);
+        metrics.gauge("wingsync_storage_cache_size", labels, cache::size);
+        metrics.gauge("wingsync_storage_cache_hit_ratio", labels, cache::hitRatio);
+    }
+}
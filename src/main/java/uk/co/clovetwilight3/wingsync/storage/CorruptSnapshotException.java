@@ -0,0 +1,30 @@
+/*
+ * Copyright (c) 2025 Clove Twilight
+ * Licensed under the MIT License
+ * WingSync
+ */
+
+package uk.co.clovetwilight3.wingsync.storage;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a snapshot is damaged part way through. Records read before
+ * the damage have already been loaded.
+ */
+class CorruptSnapshotException extends IOException {
+
+    private final int skipped;
+
+    CorruptSnapshotException(String fileName, int skipped, Throwable cause) {
+        super(fileName + " is damaged: " + cause.getMessage(), cause);
+        this.skipped = skipped;
+    }
+
+    /**
+     * @return How many records are known to have been lost
+     */
+    int getSkipped() {
+        return skipped;
+    }
+}
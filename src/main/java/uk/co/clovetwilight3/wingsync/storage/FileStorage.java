@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2025 Clove Twilight
+ * Licensed under the MIT License
+ * WingSync
+ */
+
+package uk.co.clovetwilight3.wingsync.storage;
+
+import uk.co.clovetwilight3.wingsync.metrics.MetricsRegistry;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * File-based storage: links live in a {@link LinkIndex} and are persisted
+ * through a {@link JournaledFileStore}.
+ */
+public class FileStorage implements StorageBackend {
+
+    private final LinkIndex linkIndex = new LinkIndex();
+    private final JournaledFileStore fileStore;
+    private final Logger logger;
+    // Keeps index updates and journal order in step when writers race
+    private final Object writeLock = new Object();
+
+    /**
+     * @param binarySnapshot Keep the snapshot in the memory-mapped binary format instead of JSON
+     */
+    public FileStorage(File dataFolder, Logger logger, MetricsRegistry metrics, long flushIntervalMillis,
+                       int compactAfterChanges, boolean binarySnapshot) {
+        this.logger = logger;
+        this.fileStore = new JournaledFileStore(dataFolder, linkIndex, logger, metrics, flushIntervalMillis,
+                compactAfterChanges, binarySnapshot);
+    }
+
+    /**
+     * @throws UncheckedIOException If the data could not be read. Running on a
+     *                              partial index would overwrite the files with it.
+     */
+    public void load() {
+        try {
+            long start = System.nanoTime();
+            fileStore.load();
+            logger.info("Loaded " + linkIndex.size() + " player records from file in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms.");
+        } catch (IOException e) {
+            logger.severe("Failed to load player data from file: " + e.getMessage());
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public LinkIndex getLinkIndex() {
+        return linkIndex;
+    }
+
+    @Override
+    public String getName() {
+        return "File-based Storage";
+    }
+
+    @Override
+    public String describe() {
+        return "Data file: " + fileStore.getSnapshotFile().getName() + " (" + linkIndex.size() + " records)";
+    }
+
+    @Override
+    public void storePlayerData(String uuid, String username, String discordId, String discordUsername) {
+        PlayerData data = new PlayerData(uuid, username, discordId, discordUsername);
+        synchronized (writeLock) {
+            linkIndex.put(data);
+            fileStore.recordPut(data);
+        }
+    }
+
+    /**
+     * The write lock already serialises every change to the index, so the
+     * checks and the write cannot interleave with another link.
+     */
+    @Override
+    public LinkResult linkPlayer(String uuid, String username, String discordId, String discordUsername,
+                                 int maxAccounts, boolean takeOver) {
+        synchronized (writeLock) {
+            PlayerData current = linkIndex.getByUuid(uuid);
+            boolean owned = current != null && current.discordId.equals(discordId);
+            if (LinkResult.claimedByOther(current, discordId) && !takeOver) {
+                return new LinkResult(LinkResult.Status.CLAIMED, current);
+            }
+            // Relinking an account the user already owns does not take another slot
+            int others = linkIndex.countByDiscordId(discordId) - (owned ? 1 : 0);
+            if (maxAccounts > 0 && others >= maxAccounts) {
+                return new LinkResult(LinkResult.Status.LIMIT_REACHED, current);
+            }
+
+            PlayerData data = new PlayerData(uuid, username, discordId, discordUsername);
+            linkIndex.put(data);
+            fileStore.recordPut(data);
+            return new LinkResult(LinkResult.Status.LINKED, current);
+        }
+    }
+
+    @Override
+    public void removePlayerData(String uuid) {
+        synchronized (writeLock) {
+            if (linkIndex.remove(uuid) != null) {
+                fileStore.recordRemove(uuid);
+            }
+        }
+    }
+
+    /**
+     * Journals the whole batch as one segment and waits for it to reach disk,
+     * rather than leaving it to the next scheduled flush.
+     */
+    @Override
+    public void storePlayerDataBatch(Collection<PlayerData> links) {
+        synchronized (writeLock) {
+            for (PlayerData data : links) {
+                linkIndex.put(data);
+                fileStore.recordPut(data);
+            }
+        }
+        flushNow();
+    }
+
+    @Override
+    public void removePlayerDataBatch(Collection<String> uuids) {
+        synchronized (writeLock) {
+            for (String uuid : uuids) {
+                if (linkIndex.remove(uuid) != null) {
+                    fileStore.recordRemove(uuid);
+                }
+            }
+        }
+        flushNow();
+    }
+
+    @Override
+    public List<PlayerData> getLinksAfter(String afterUuid, int limit) {
+        return linkIndex.getAfter(afterUuid, limit);
+    }
+
+    @Override
+    public void forEachLink(Consumer<PlayerData> action) {
+        linkIndex.asMap().values().forEach(action);
+    }
+
+    @Override
+    public List<String> getUsernamesByDiscordId(String discordId) {
+        List<String> usernames = new ArrayList<>();
+        for (PlayerData data : linkIndex.getByDiscordId(discordId)) {
+            usernames.add(data.username);
+        }
+        return usernames;
+    }
+
+    @Override
+    public List<String> getUuidsByDiscordId(String discordId) {
+        List<String> uuids = new ArrayList<>();
+        for (PlayerData data : linkIndex.getByDiscordId(discordId)) {
+            uuids.add(data.uuid);
+        }
+        return uuids;
+    }
+
+    @Override
+    public String getDiscordUsernameByMinecraftUsername(String username) {
+        PlayerData data = linkIndex.getByUsername(username);
+        return data != null ? data.discordUsername : null;
+    }
+
+    @Override
+    public String getDiscordIdByUuid(String uuid) {
+        PlayerData data = linkIndex.getByUuid(uuid);
+        return data != null ? data.discordId : null;
+    }
+
+    @Override
+    public PlayerData getLink(String uuid) {
+        return linkIndex.getByUuid(uuid);
+    }
+
+    @Override
+    public String getUuidByUsername(String username) {
+        PlayerData data = linkIndex.getByUsername(username);
+        return data != null ? data.uuid : null;
+    }
+
+    @Override
+    public List<PlayerData> getLinksByUsernames(Collection<String> usernames) {
+        List<PlayerData> found = new ArrayList<>();
+        for (String username : usernames) {
+            PlayerData data = linkIndex.getByUsername(username);
+            if (data != null) {
+                found.add(data);
+            }
+        }
+        return found;
+    }
+
+    private void flushNow() {
+        try {
+            fileStore.flushNow();
+        } catch (IOException e) {
+            logger.warning("Failed to save player data: " + e.getMessage());
+            throw new RuntimeException("File storage error", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        fileStore.close();
+    }
+}
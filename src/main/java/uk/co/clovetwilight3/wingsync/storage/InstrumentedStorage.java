@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2025 Clove Twilight
+ * Licensed under the MIT License
+ * WingSync
+ */
+
+package uk.co.clovetwilight3.wingsync.storage;
+
+import uk.co.clovetwilight3.wingsync.metrics.MetricsRegistry;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Wraps a {@link StorageBackend} and records the latency and failures of
+ * every operation, labelled by operation name. It also counts operations in
+ * progress, so a reload can wait for them before closing the backend, and
+ * reports the UUID of every link a successful write changed.
+ */
+public class InstrumentedStorage implements StorageBackend {
+
+    public static final String OP_DURATION = "wingsync_storage_op_duration_seconds";
+    public static final String OP_ERRORS = "wingsync_storage_op_errors_total";
+
+    private final StorageBackend delegate;
+    private final MetricsRegistry metrics;
+    private final AtomicInteger active = new AtomicInteger();
+    private final Consumer<String> onLinkChanged;
+
+    public InstrumentedStorage(StorageBackend delegate, MetricsRegistry metrics) {
+        this(delegate, metrics, uuid -> { });
+    }
+
+    /**
+     * @param onLinkChanged Told the UUID of each link added, replaced or removed through this wrapper
+     */
+    public InstrumentedStorage(StorageBackend delegate, MetricsRegistry metrics, Consumer<String> onLinkChanged) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+        this.onLinkChanged = onLinkChanged;
+        metrics.help(OP_DURATION, "Time taken by each storage operation");
+        metrics.help(OP_ERRORS, "Storage operations that failed");
+    }
+
+    /**
+     * @return The backend being measured
+     */
+    public StorageBackend getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Wait until no operation is running, or the timeout passes.
+     * @return true if the backend went idle
+     */
+    public boolean awaitIdle(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (active.get() > 0) {
+            if (System.nanoTime() >= deadline) {
+                return false;
+            }
+            Thread.sleep(20);
+        }
+        return true;
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public String describe() {
+        return delegate.describe();
+    }
+
+    @Override
+    public void storePlayerData(String uuid, String username, String discordId, String discordUsername) {
+        timed("storePlayerData", () -> {
+            delegate.storePlayerData(uuid, username, discordId, discordUsername);
+            return null;
+        });
+        onLinkChanged.accept(uuid);
+    }
+
+    @Override
+    public LinkResult linkPlayer(String uuid, String username, String discordId, String discordUsername,
+                                 int maxAccounts, boolean takeOver) {
+        LinkResult result = timed("linkPlayer",
+                () -> delegate.linkPlayer(uuid, username, discordId, discordUsername, maxAccounts, takeOver));
+        if (result.status() == LinkResult.Status.LINKED) {
+            onLinkChanged.accept(uuid);
+        }
+        return result;
+    }
+
+    @Override
+    public void removePlayerData(String uuid) {
+        timed("removePlayerData", () -> {
+            delegate.removePlayerData(uuid);
+            return null;
+        });
+        onLinkChanged.accept(uuid);
+    }
+
+    @Override
+    public void storePlayerDataBatch(Collection<PlayerData> links) {
+        timed("storePlayerDataBatch", () -> {
+            delegate.storePlayerDataBatch(links);
+            return null;
+        });
+        for (PlayerData link : links) {
+            onLinkChanged.accept(link.uuid);
+        }
+    }
+
+    @Override
+    public void removePlayerDataBatch(Collection<String> uuids) {
+        timed("removePlayerDataBatch", () -> {
+            delegate.removePlayerDataBatch(uuids);
+            return null;
+        });
+        uuids.forEach(onLinkChanged);
+    }
+
+    @Override
+    public List<PlayerData> getLinksAfter(String afterUuid, int limit) {
+        return timed("getLinksAfter", () -> delegate.getLinksAfter(afterUuid, limit));
+    }
+
+    @Override
+    public void forEachLink(Consumer<PlayerData> action) {
+        timed("forEachLink", () -> {
+            delegate.forEachLink(action);
+            return null;
+        });
+    }
+
+    @Override
+    public List<String> getUsernamesByDiscordId(String discordId) {
+        return timed("getUsernamesByDiscordId", () -> delegate.getUsernamesByDiscordId(discordId));
+    }
+
+    @Override
+    public List<String> getUuidsByDiscordId(String discordId) {
+        return timed("getUuidsByDiscordId", () -> delegate.getUuidsByDiscordId(discordId));
+    }
+
+    @Override
+    public String getDiscordUsernameByMinecraftUsername(String username) {
+        return timed("getDiscordUsernameByMinecraftUsername", () -> delegate.getDiscordUsernameByMinecraftUsername(username));
+    }
+
+    @Override
+    public String getDiscordIdByUuid(String uuid) {
+        return timed("getDiscordIdByUuid", () -> delegate.getDiscordIdByUuid(uuid));
+    }
+
+    @Override
+    public PlayerData getLink(String uuid) {
+        return timed("getLink", () -> delegate.getLink(uuid));
+    }
+
+    @Override
+    public String getUuidByUsername(String username) {
+        return timed("getUuidByUsername", () -> delegate.getUuidByUsername(username));
+    }
+
+    @Override
+    public List<PlayerData> getLinksByUsernames(Collection<String> usernames) {
+        return timed("getLinksByUsernames", () -> delegate.getLinksByUsernames(usernames));
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    private <T> T timed(String op, Supplier<T> task) {
+        String labels = MetricsRegistry.label("op", op);
+        long start = System.nanoTime();
+        active.incrementAndGet();
+        try {
+            return task.get();
+        } catch (RuntimeException e) {
+            metrics.counter(OP_ERRORS, labels).increment();
+            throw e;
+        } finally {
+            active.decrementAndGet();
+            metrics.histogram(OP_DURATION, labels).recordSince(start);
+        }
+    }
+}
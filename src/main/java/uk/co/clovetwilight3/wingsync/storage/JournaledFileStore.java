@@ -0,0 +1,403 @@
+/*
+ * Copyright (c) 2025 Clove Twilight
+ * Licensed under the MIT License
+ * WingSync
+ */
+
+package uk.co.clovetwilight3.wingsync.storage;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import uk.co.clovetwilight3.wingsync.metrics.MetricsRegistry;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Write-behind persistence for file mode.
+ *
+ * Mutations are applied to the {@link LinkIndex} straight away and queued here.
+ * A background thread appends each batch of queued changes as a new journal
+ * segment, and once enough changes have built up it compacts everything into
+ * playerdata.json. Segments and the snapshot are written to a temp file and
+ * renamed into place, so a crash mid-write never leaves a truncated file.
+ *
+ * Loading streams the snapshot record by record and then replays any segments
+ * newer than it. Replaying is idempotent, so a segment that overlaps the
+ * snapshot is harmless. Corrupt records are skipped, and a damaged snapshot
+ * is kept aside and rewritten from whatever could be read.
+ *
+ * The snapshot is playerdata.json by default, or the memory-mapped
+ * playerdata.bin when binary snapshots are enabled. Either one is read on
+ * load, so switching formats converts the data on the next compaction.
+ */
+public class JournaledFileStore {
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final SnapshotCodec codec;
+    private final SnapshotCodec otherCodec;
+    private final File snapshotFile;
+    private final File otherSnapshotFile;
+    private final File journalDir;
+    private final LinkIndex linkIndex;
+    private final Logger logger;
+    private final MetricsRegistry metrics;
+    private final Gson gson = new Gson();
+    private final LinkedBlockingQueue<JournalEntry> pending = new LinkedBlockingQueue<>();
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "WingSync-Journal");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final long flushIntervalMillis;
+    private final int compactAfterChanges;
+
+    // Only touched from the writer thread (or during load, before it starts)
+    private long nextSegment = 1;
+    private int changesSinceCompaction;
+    // A batch whose write failed, retried ahead of anything queued since
+    private List<JournalEntry> unwritten = new ArrayList<>();
+    // Nothing is written until a load succeeds, so a failed load cannot overwrite the files
+    private volatile boolean loaded;
+
+    private static class JournalEntry {
+        String op;
+        String uuid;
+        PlayerData data;
+
+        JournalEntry(String op, String uuid, PlayerData data) {
+            this.op = op;
+            this.uuid = uuid;
+            this.data = data;
+        }
+    }
+
+    /**
+     * @param binarySnapshot Compact into playerdata.bin instead of playerdata.json
+     */
+    public JournaledFileStore(File dataFolder, LinkIndex linkIndex, Logger logger, MetricsRegistry metrics,
+                              long flushIntervalMillis, int compactAfterChanges, boolean binarySnapshot) {
+        this.codec = binarySnapshot ? new BinarySnapshotCodec() : new JsonSnapshotCodec();
+        this.otherCodec = binarySnapshot ? new JsonSnapshotCodec() : new BinarySnapshotCodec();
+        this.snapshotFile = new File(dataFolder, codec.fileName());
+        this.otherSnapshotFile = new File(dataFolder, otherCodec.fileName());
+        this.journalDir = new File(dataFolder, "journal");
+        this.linkIndex = linkIndex;
+        this.logger = logger;
+        this.metrics = metrics;
+        this.flushIntervalMillis = Math.max(1, flushIntervalMillis);
+        this.compactAfterChanges = Math.max(1, compactAfterChanges);
+    }
+
+    public File getSnapshotFile() {
+        return snapshotFile;
+    }
+
+    /**
+     * Load the snapshot, replay the journal into the link index and start the
+     * background writer. Must be called once, before any changes are recorded.
+     */
+    public void load() throws IOException {
+        if (!journalDir.exists() && !journalDir.mkdirs()) {
+            throw new IOException("Could not create journal directory " + journalDir);
+        }
+
+        long start = System.nanoTime();
+        linkIndex.clear();
+        // Rewrite the snapshot straight away if it is in the other format or damaged
+        boolean rewrite = false;
+        if (snapshotFile.exists()) {
+            rewrite = !loadSnapshot(codec, snapshotFile);
+            if (rewrite && linkIndex.size() == 0 && otherSnapshotFile.exists()) {
+                // Nothing could be read from it; an older snapshot in the other format beats none
+                logger.warning("Loading " + otherSnapshotFile.getName() + " instead.");
+                loadSnapshot(otherCodec, otherSnapshotFile);
+            }
+        } else if (otherSnapshotFile.exists()) {
+            loadSnapshot(otherCodec, otherSnapshotFile);
+            rewrite = true;
+        }
+
+        List<Path> segments = listSegments();
+        int replayed = 0;
+        for (Path segment : segments) {
+            replayed += replaySegment(segment);
+            nextSegment = Math.max(nextSegment, segmentNumber(segment) + 1);
+        }
+        changesSinceCompaction = replayed;
+
+        if (replayed > 0) {
+            logger.info("Replayed " + replayed + " journaled changes from " + segments.size() + " segment(s).");
+        }
+        loaded = true;
+        if (replayed > 0 || rewrite) {
+            writer.execute(this::compactQuietly);
+        }
+        metrics.histogram("wingsync_file_load_seconds", "").recordSince(start);
+        writer.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void recordPut(PlayerData data) {
+        pending.add(new JournalEntry("put", data.uuid, data));
+    }
+
+    public void recordRemove(String uuid) {
+        pending.add(new JournalEntry("remove", uuid, null));
+    }
+
+    /**
+     * Write everything queued so far to the journal now, rather than on the
+     * next scheduled flush. Blocks until it is on disk.
+     */
+    public void flushNow() throws IOException {
+        try {
+            writer.submit(() -> {
+                flush();
+                if (isCompactionDue()) {
+                    compact();
+                }
+                return null;
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while saving player data", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Flush outstanding changes and compact them into the snapshot, then stop
+     * the background writer. Blocks until done.
+     */
+    public void close() {
+        if (loaded) {
+            writer.execute(() -> {
+                flushQuietly();
+                compactQuietly();
+            });
+        }
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(30, TimeUnit.SECONDS)) {
+                logger.warning("Timed out waiting for the player data journal to flush.");
+            }
+        } catch (InterruptedException e) {
+            logger.warning("Interrupted while flushing player data journal: " + e.getMessage());
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+            if (isCompactionDue()) {
+                compact();
+            }
+        } catch (IOException e) {
+            logger.warning("Failed to write player data journal: " + e.getMessage());
+        }
+    }
+
+    private boolean isCompactionDue() {
+        // Large link sets wait until the journal is half the size of the snapshot,
+        // so bulk writes do not rewrite the whole snapshot every few thousand changes
+        return changesSinceCompaction >= Math.max(compactAfterChanges, linkIndex.size() / 2);
+    }
+
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (IOException e) {
+            logger.warning("Failed to compact player data: " + e.getMessage());
+        }
+    }
+
+    private void flush() throws IOException {
+        if (!loaded) {
+            throw new IOException("Player data was never loaded, so changes are not being saved");
+        }
+        List<JournalEntry> batch = unwritten;
+        unwritten = new ArrayList<>();
+        pending.drainTo(batch);
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        Path segment = journalDir.toPath().resolve(segmentName(nextSegment));
+        Path temp = journalDir.toPath().resolve(segmentName(nextSegment) + TEMP_SUFFIX);
+        try {
+            try (FileOutputStream out = new FileOutputStream(temp.toFile());
+                 Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+                for (JournalEntry entry : batch) {
+                    writer.write(gson.toJson(entry));
+                    writer.write('\n');
+                }
+                writer.flush();
+                out.getFD().sync();
+            }
+            moveAtomically(temp, segment);
+        } catch (IOException e) {
+            // Keep the batch so the next flush writes it before newer changes
+            unwritten = batch;
+            throw e;
+        }
+
+        nextSegment++;
+        changesSinceCompaction += batch.size();
+        metrics.histogram("wingsync_file_journal_flush_seconds", "").recordSince(start);
+    }
+
+    private void compact() throws IOException {
+        if (!loaded) {
+            throw new IOException("Player data was never loaded, so the snapshot is left as it is");
+        }
+        // Everything already written to a segment is reflected in the index, so
+        // once the snapshot is in place those segments can go. Changes still
+        // pending land in a later segment and are replayed on top.
+        long start = System.nanoTime();
+        List<Path> segments = listSegments();
+
+        Path temp = snapshotFile.toPath().resolveSibling(snapshotFile.getName() + TEMP_SUFFIX);
+        List<PlayerData> records = new ArrayList<>(linkIndex.asMap().values());
+        codec.write(temp, records);
+        moveAtomically(temp, snapshotFile.toPath());
+
+        // The snapshot in the other format, if any, is now out of date
+        Files.deleteIfExists(otherSnapshotFile.toPath());
+        for (Path segment : segments) {
+            Files.deleteIfExists(segment);
+        }
+        changesSinceCompaction = 0;
+        metrics.histogram("wingsync_file_compaction_seconds", "").recordSince(start);
+        logger.info("Saved " + records.size() + " player records to file.");
+    }
+
+    /**
+     * Stream a snapshot into the link index, skipping records that fail validation.
+     * @return false if the snapshot was damaged and should be rewritten
+     */
+    private boolean loadSnapshot(SnapshotCodec snapshotCodec, File file) throws IOException {
+        int[] invalid = new int[1];
+        int skipped;
+        boolean intact = true;
+        try {
+            skipped = snapshotCodec.read(file.toPath(), data -> {
+                if (isValid(data)) {
+                    linkIndex.put(data);
+                } else {
+                    invalid[0]++;
+                }
+            });
+        } catch (CorruptSnapshotException e) {
+            skipped = e.getSkipped();
+            intact = false;
+            Path backup = file.toPath().resolveSibling(file.getName() + ".corrupt-" + System.currentTimeMillis());
+            Files.copy(file.toPath(), backup, StandardCopyOption.REPLACE_EXISTING);
+            logger.warning(e.getMessage() + ". Loaded the " + linkIndex.size() + " records before the damage; "
+                    + "the original was kept as " + backup.getFileName() + ".");
+        }
+
+        skipped += invalid[0];
+        if (skipped > 0) {
+            logger.warning("Skipped " + skipped + " corrupt player record(s) in " + file.getName() + ".");
+        }
+        return intact;
+    }
+
+    private static boolean isValid(PlayerData data) {
+        if (data.uuid == null || data.username == null || data.username.isBlank()
+                || data.discordId == null || data.discordId.isBlank()) {
+            return false;
+        }
+        try {
+            UUID.fromString(data.uuid);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private int replaySegment(Path segment) throws IOException {
+        int applied = 0;
+        try (BufferedReader reader = Files.newBufferedReader(segment, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    JournalEntry entry = gson.fromJson(line, JournalEntry.class);
+                    if ("put".equals(entry.op) && entry.data != null) {
+                        linkIndex.put(entry.data);
+                    } else if ("remove".equals(entry.op) && entry.uuid != null) {
+                        linkIndex.remove(entry.uuid);
+                    }
+                    applied++;
+                } catch (JsonParseException e) {
+                    logger.warning("Skipping unreadable journal entry in " + segment.getFileName() + ": " + e.getMessage());
+                }
+            }
+        }
+        return applied;
+    }
+
+    private List<Path> listSegments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(journalDir.toPath())) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                if (name.endsWith(TEMP_SUFFIX)) {
+                    // Left behind by a crash before the rename; never made it into the journal
+                    Files.deleteIfExists(path);
+                } else if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                    segments.add(path);
+                }
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    private static String segmentName(long number) {
+        // Zero-padded so lexical order matches write order
+        return SEGMENT_PREFIX + String.format("%019d", number) + SEGMENT_SUFFIX;
+    }
+
+    private static long segmentNumber(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
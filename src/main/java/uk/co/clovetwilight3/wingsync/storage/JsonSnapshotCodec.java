@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2025 Clove Twilight
+ * Licensed under the MIT License
+ * WingSync
+ */
+
+package uk.co.clovetwilight3.wingsync.storage;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.google.gson.stream.MalformedJsonException;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * playerdata.json: one object keyed by UUID, each value a {@link PlayerData}.
+ *
+ * Reading walks the file token by token, so memory use stays flat however
+ * large the file is. A value with the wrong shape is skipped on its own; a
+ * file cut off part way keeps everything read before the damage.
+ */
+class JsonSnapshotCodec implements SnapshotCodec {
+
+    @Override
+    public String fileName() {
+        return "playerdata.json";
+    }
+
+    @Override
+    public int read(Path file, Consumer<PlayerData> sink) throws IOException {
+        int skipped = 0;
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+             JsonReader json = new JsonReader(in)) {
+            try {
+                if (json.peek() == JsonToken.END_DOCUMENT) {
+                    return 0;
+                }
+                json.beginObject();
+                while (json.hasNext()) {
+                    String key = json.nextName();
+                    PlayerData data = readRecord(json);
+                    if (data == null) {
+                        skipped++;
+                        continue;
+                    }
+                    if (data.uuid == null) {
+                        data.uuid = key;
+                    }
+                    sink.accept(data);
+                }
+                json.endObject();
+            } catch (MalformedJsonException | EOFException | IllegalStateException e) {
+                // Truncated or mangled past this point; everything before it has been kept
+                throw new CorruptSnapshotException(fileName(), skipped, e);
+            }
+        }
+        return skipped;
+    }
+
+    @Override
+    public void write(Path file, Collection<PlayerData> records) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file.toFile());
+             JsonWriter json = new JsonWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            json.setSerializeNulls(false);
+            json.beginObject();
+            for (PlayerData data : records) {
+                json.name(data.uuid);
+                json.beginObject();
+                json.name("uuid").value(data.uuid);
+                json.name("username").value(data.username);
+                json.name("discordId").value(data.discordId);
+                json.name("discordUsername").value(data.discordUsername);
+                json.name("linkedAt").value(data.linkedAt);
+                json.endObject();
+            }
+            json.endObject();
+            json.flush();
+            out.getFD().sync();
+        }
+    }
+
+    /**
+     * @return The record, or null if the value is not a record (it is consumed either way)
+     */
+    private static PlayerData readRecord(JsonReader json) throws IOException {
+        if (json.peek() != JsonToken.BEGIN_OBJECT) {
+            json.skipValue();
+            return null;
+        }
+
+        PlayerData data = new PlayerData(null, null, null, null);
+        data.linkedAt = 0;
+        boolean valid = true;
+        json.beginObject();
+        while (json.hasNext()) {
+            String field = json.nextName();
+            JsonToken token = json.peek();
+            if (token == JsonToken.NULL) {
+                json.nextNull();
+                continue;
+            }
+            switch (field) {
+                case "uuid", "username", "discordId", "discordUsername" -> {
+                    if (token != JsonToken.STRING && token != JsonToken.NUMBER) {
+                        json.skipValue();
+                        valid = false;
+                        continue;
+                    }
+                    String value = json.nextString();
+                    switch (field) {
+                        case "uuid" -> data.uuid = value;
+                        case "username" -> data.username = value;
+                        case "discordId" -> data.discordId = value;
+                        default -> data.discordUsername = value;
+                    }
+                }
+                case "linkedAt" -> {
+                    try {
+                        data.linkedAt = json.nextLong();
+                    } catch (NumberFormatException | IllegalStateException e) {
+                        json.skipValue();
+                    }
+                }
+                default -> json.skipValue();
+            }
+        }
+        json.endObject();
+        return valid ? data : null;
+    }
+}
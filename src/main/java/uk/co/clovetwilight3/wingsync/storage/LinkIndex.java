@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2025 Clove Twilight
+ * Licensed under the MIT License
+ * WingSync
+ */
+
+package uk.co.clovetwilight3.wingsync.storage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory registry of player links, indexed by UUID, by case-folded Minecraft
+ * username and by Discord ID (one Discord user can own several accounts).
+ *
+ * Reads are lock-free and safe from any thread (JDA callbacks included).
+ * Writes are serialised so the three indexes always move together. The index
+ * holds no storage logic of its own, so it can sit in front of any backend.
+ */
+public class LinkIndex {
+
+    private final Map<String, PlayerData> byUuid = new ConcurrentHashMap<>();
+    private final Map<String, PlayerData> byUsername = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> byDiscordId = new ConcurrentHashMap<>();
+    private final Object writeLock = new Object();
+
+    // Sorted UUIDs for paging, rebuilt on the first page read after a write
+    private record SortedUuids(long version, String[] uuids) {
+    }
+
+    private final AtomicLong version = new AtomicLong();
+    private volatile SortedUuids sorted = new SortedUuids(-1, new String[0]);
+
+    /**
+     * Add or replace a link.
+     * @param data The link to store, keyed by its UUID
+     * @return The link previously stored for that UUID, or null
+     */
+    public PlayerData put(PlayerData data) {
+        synchronized (writeLock) {
+            PlayerData previous = byUuid.put(data.uuid, data);
+            if (previous != null) {
+                unlinkSecondary(previous);
+            } else {
+                version.incrementAndGet();
+            }
+            byUsername.put(foldUsername(data.username), data);
+            byDiscordId.computeIfAbsent(data.discordId, id -> ConcurrentHashMap.newKeySet()).add(data.uuid);
+            return previous;
+        }
+    }
+
+    public void putAll(Collection<PlayerData> links) {
+        synchronized (writeLock) {
+            for (PlayerData data : links) {
+                put(data);
+            }
+        }
+    }
+
+    /**
+     * Remove a link by UUID.
+     * @return The removed link, or null if there was none
+     */
+    public PlayerData remove(String uuid) {
+        synchronized (writeLock) {
+            PlayerData previous = byUuid.remove(uuid);
+            if (previous != null) {
+                version.incrementAndGet();
+                unlinkSecondary(previous);
+            }
+            return previous;
+        }
+    }
+
+    public void clear() {
+        synchronized (writeLock) {
+            byUuid.clear();
+            byUsername.clear();
+            byDiscordId.clear();
+            version.incrementAndGet();
+        }
+    }
+
+    public PlayerData getByUuid(String uuid) {
+        return byUuid.get(uuid);
+    }
+
+    public PlayerData getByUsername(String username) {
+        return byUsername.get(foldUsername(username));
+    }
+
+    public List<PlayerData> getByDiscordId(String discordId) {
+        Set<String> uuids = byDiscordId.get(discordId);
+        if (uuids == null) {
+            return Collections.emptyList();
+        }
+
+        List<PlayerData> links = new ArrayList<>(uuids.size());
+        for (String uuid : uuids) {
+            PlayerData data = byUuid.get(uuid);
+            if (data != null) {
+                links.add(data);
+            }
+        }
+        return links;
+    }
+
+    /**
+     * @return How many accounts this Discord user has linked, without building a list
+     */
+    public int countByDiscordId(String discordId) {
+        Set<String> uuids = byDiscordId.get(discordId);
+        return uuids != null ? uuids.size() : 0;
+    }
+
+    /**
+     * @return Up to limit links whose UUID sorts after afterUuid, in UUID order
+     */
+    public List<PlayerData> getAfter(String afterUuid, int limit) {
+        String[] uuids = sortedUuids();
+        int from = Arrays.binarySearch(uuids, afterUuid);
+        from = from >= 0 ? from + 1 : -from - 1;
+
+        List<PlayerData> page = new ArrayList<>(Math.min(limit, uuids.length - from));
+        for (int i = from; i < uuids.length && page.size() < limit; i++) {
+            PlayerData data = byUuid.get(uuids[i]);
+            if (data != null) {
+                page.add(data);
+            }
+        }
+        return page;
+    }
+
+    public int size() {
+        return byUuid.size();
+    }
+
+    /**
+     * Read-only view of all links keyed by UUID, in the same shape as playerdata.json.
+     */
+    public Map<String, PlayerData> asMap() {
+        return Collections.unmodifiableMap(byUuid);
+    }
+
+    private String[] sortedUuids() {
+        SortedUuids current = sorted;
+        long now = version.get();
+        if (current.version() != now) {
+            // A write while this copies bumps the version again, so the next read rebuilds
+            String[] uuids = byUuid.keySet().toArray(new String[0]);
+            Arrays.sort(uuids);
+            current = new SortedUuids(now, uuids);
+            sorted = current;
+        }
+        return current.uuids();
+    }
+
+    private void unlinkSecondary(PlayerData data) {
+        // Only drop the name entry if it still points at this link; a renamed
+        // account may have handed the name to someone else in the meantime.
+        byUsername.remove(foldUsername(data.username), data);
+
+        Set<String> uuids = byDiscordId.get(data.discordId);
+        if (uuids != null) {
+            uuids.remove(data.uuid);
+            if (uuids.isEmpty()) {
+                byDiscordId.remove(data.discordId, uuids);
+            }
+        }
+    }
+
+    private static String foldUsername(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+}
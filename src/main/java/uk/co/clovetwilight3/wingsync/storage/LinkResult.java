@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2025 Clove Twilight
+ * Licensed under the MIT License
+ * WingSync
+ */
+
+package uk.co.clovetwilight3.wingsync.storage;
+
+import uk.co.clovetwilight3.wingsync.whitelist.WhitelistReconciler;
+
+/**
+ * The outcome of {@link StorageBackend#linkPlayer}.
+ *
+ * @param status   Whether the link was made, and if not, why
+ * @param previous The link the account had before, or null if it was not linked
+ */
+public record LinkResult(Status status, PlayerData previous) {
+
+    public enum Status {
+        LINKED,
+        // The account is linked to a different Discord user
+        CLAIMED,
+        // The Discord user already has as many accounts as allowed
+        LIMIT_REACHED
+    }
+
+    /**
+     * @return Whether the current link belongs to a different Discord user. Accounts
+     *         imported by /reconcile belong to nobody, so anyone may claim them.
+     */
+    static boolean claimedByOther(PlayerData current, String discordId) {
+        return current != null && !current.discordId.equals(discordId)
+                && !current.discordId.equals(WhitelistReconciler.UNLINKED_DISCORD_ID);
+    }
+}
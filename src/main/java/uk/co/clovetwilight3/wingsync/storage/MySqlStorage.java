@@ -0,0 +1,542 @@
+/*
+ * Copyright (c) 2025 Clove Twilight
+ * Licensed under the MIT License
+ * WingSync
+ */
+
+package uk.co.clovetwilight3.wingsync.storage;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * MySQL storage backed by a HikariCP connection pool.
+ *
+ * Every call borrows its own connection, so JDA threads and the server thread
+ * never share one. Dead connections are replaced by the pool in the
+ * background; a caller waits at most the configured connection timeout
+ * instead of reconnecting inline.
+ *
+ * In network mode every write also appends to wingsync_changes in the same
+ * transaction, so other servers sharing the database can follow along.
+ */
+public class MySqlStorage implements StorageBackend {
+
+    private final HikariDataSource dataSource;
+    private final String description;
+    private final Logger logger;
+    private final String changeOrigin;
+
+    // Rows per JDBC batch and per page when walking the table
+    private static final int CHUNK_SIZE = 1000;
+
+    @FunctionalInterface
+    private interface SqlWork {
+        void run(Connection conn) throws SQLException;
+    }
+
+    public MySqlStorage(HikariDataSource dataSource, String description, Logger logger) throws SQLException {
+        this(dataSource, description, logger, null);
+    }
+
+    /**
+     * @param dataSource  The pool to use. Any MySQL-compatible JDBC URL works, which
+     *                    lets an embedded database stand in for a real server.
+     * @param description Where the pool points, shown by the /storage command
+     * @param changeOrigin This server's network node ID, or null to not record changes
+     */
+    public MySqlStorage(HikariDataSource dataSource, String description, Logger logger, String changeOrigin) throws SQLException {
+        this.dataSource = dataSource;
+        this.description = description;
+        this.logger = logger;
+        this.changeOrigin = changeOrigin;
+
+        try (Connection conn = dataSource.getConnection()) {
+            new SchemaMigrator(logger).migrate(conn);
+        }
+        logger.info("Whitelist table initialized.");
+    }
+
+    /**
+     * Build a pool configuration with bounded size, validation and timeouts,
+     * and driver-side prepared statement caching so repeated queries reuse
+     * their server-side statements.
+     */
+    public static HikariConfig createPoolConfig(String jdbcUrl, String username, String password,
+                                                int maxPoolSize, long connectionTimeoutMillis) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("WingSync-MySQL");
+        config.setJdbcUrl(jdbcUrl);
+        config.setUsername(username);
+        config.setPassword(password);
+        config.setMaximumPoolSize(Math.max(1, maxPoolSize));
+        config.setMinimumIdle(Math.min(2, Math.max(1, maxPoolSize)));
+        config.setConnectionTimeout(connectionTimeoutMillis);
+        config.setValidationTimeout(Math.min(connectionTimeoutMillis, 3000));
+        config.setIdleTimeout(600_000);
+        config.setMaxLifetime(1_800_000);
+        config.setKeepaliveTime(300_000);
+
+        config.addDataSourceProperty("cachePrepStmts", "true");
+        config.addDataSourceProperty("prepStmtCacheSize", "250");
+        config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+        config.addDataSourceProperty("useServerPrepStmts", "true");
+        // Sends a JDBC batch as multi-row statements instead of one round-trip per row
+        config.addDataSourceProperty("rewriteBatchedStatements", "true");
+        return config;
+    }
+
+    public HikariDataSource getDataSource() {
+        return dataSource;
+    }
+
+    @Override
+    public String getName() {
+        return "MySQL Database";
+    }
+
+    @Override
+    public String describe() {
+        return "Connected to: " + description + " (pool " + dataSource.getHikariPoolMXBean().getActiveConnections()
+                + "/" + dataSource.getMaximumPoolSize() + " in use)";
+    }
+
+    @Override
+    public void storePlayerData(String uuid, String username, String discordId, String discordUsername) {
+        write(conn -> {
+            recordReplacements(conn, List.of(new PlayerData(uuid, username, discordId, discordUsername)));
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "REPLACE INTO discord_whitelist (uuid, discord_id, discord_username, username) VALUES (?, ?, ?, ?)")) {
+                stmt.setString(1, uuid);
+                stmt.setString(2, discordId);
+                stmt.setString(3, discordUsername);
+                stmt.setString(4, username);
+                stmt.executeUpdate();
+            }
+        });
+    }
+
+    /**
+     * Runs in one transaction that first locks the Discord user's row in
+     * wingsync_link_owners, so links for the same user are counted and written
+     * one at a time across every server sharing the database. A new link is a
+     * plain INSERT, so if another user claims the account at the same moment
+     * the primary key turns one of them away.
+     */
+    @Override
+    public LinkResult linkPlayer(String uuid, String username, String discordId, String discordUsername,
+                                 int maxAccounts, boolean takeOver) {
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            // Each read then sees whatever the previous holder of the lock committed
+            conn.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+            try {
+                LinkResult result = link(conn, uuid, username, discordId, discordUsername, maxAccounts, takeOver);
+                conn.commit();
+                return result;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            logger.warning("MySQL Error: " + e.getMessage());
+            throw new RuntimeException("Database error", e);
+        }
+    }
+
+    private LinkResult link(Connection conn, String uuid, String username, String discordId, String discordUsername,
+                            int maxAccounts, boolean takeOver) throws SQLException {
+        // Takes the exclusive lock straight away, whether or not the row exists yet. Taking a
+        // shared lock first and upgrading it would deadlock two links by the same user.
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT INTO wingsync_link_owners (discord_id) VALUES (?) ON DUPLICATE KEY UPDATE discord_id = discord_id")) {
+            stmt.setString(1, discordId);
+            stmt.executeUpdate();
+        }
+
+        PlayerData current = lockLink(conn, uuid);
+        boolean owned = current != null && current.discordId.equals(discordId);
+        if (LinkResult.claimedByOther(current, discordId) && !takeOver) {
+            return new LinkResult(LinkResult.Status.CLAIMED, current);
+        }
+        if (maxAccounts > 0) {
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT COUNT(*) FROM discord_whitelist WHERE discord_id = ? AND uuid <> ?")) {
+                stmt.setString(1, discordId);
+                stmt.setString(2, uuid);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next() && rs.getInt(1) >= maxAccounts) {
+                        return new LinkResult(LinkResult.Status.LIMIT_REACHED, current);
+                    }
+                }
+            }
+        }
+
+        if (current == null) {
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT INTO discord_whitelist (uuid, discord_id, discord_username, username) VALUES (?, ?, ?, ?)")) {
+                stmt.setString(1, uuid);
+                stmt.setString(2, discordId);
+                stmt.setString(3, discordUsername);
+                stmt.setString(4, username);
+                stmt.executeUpdate();
+            } catch (SQLIntegrityConstraintViolationException e) {
+                // Another user linked it since we looked; their transaction has committed by now
+                return new LinkResult(LinkResult.Status.CLAIMED, lockLink(conn, uuid));
+            }
+        } else {
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "UPDATE discord_whitelist SET discord_id = ?, discord_username = ?, username = ?, "
+                            + "linked_at = CURRENT_TIMESTAMP WHERE uuid = ?")) {
+                stmt.setString(1, discordId);
+                stmt.setString(2, discordUsername);
+                stmt.setString(3, username);
+                stmt.setString(4, uuid);
+                stmt.executeUpdate();
+            }
+        }
+        recordAdd(conn, uuid, username, discordId, current != null ? current.discordId : null);
+        return new LinkResult(LinkResult.Status.LINKED, current);
+    }
+
+    private PlayerData lockLink(Connection conn, String uuid) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT uuid, username, discord_id, discord_username, linked_at FROM discord_whitelist WHERE uuid = ? FOR UPDATE")) {
+            stmt.setString(1, uuid);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? readLink(rs) : null;
+            }
+        }
+    }
+
+    @Override
+    public void removePlayerData(String uuid) {
+        write(conn -> {
+            recordRemovals(conn, "uuid", List.of(uuid));
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "DELETE FROM discord_whitelist WHERE uuid = ?")) {
+                stmt.setString(1, uuid);
+                stmt.executeUpdate();
+            }
+        });
+    }
+
+    @Override
+    public void storePlayerDataBatch(Collection<PlayerData> links) {
+        List<PlayerData> all = new ArrayList<>(links);
+        for (int from = 0; from < all.size(); from += CHUNK_SIZE) {
+            List<PlayerData> chunk = all.subList(from, Math.min(all.size(), from + CHUNK_SIZE));
+            inTransaction(conn -> {
+                recordReplacements(conn, chunk);
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "REPLACE INTO discord_whitelist (uuid, discord_id, discord_username, username, linked_at) "
+                                + "VALUES (?, ?, ?, ?, ?)")) {
+                    for (PlayerData data : chunk) {
+                        stmt.setString(1, data.uuid);
+                        stmt.setString(2, data.discordId);
+                        stmt.setString(3, data.discordUsername);
+                        stmt.setString(4, data.username);
+                        stmt.setTimestamp(5, new Timestamp(data.linkedAt));
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+                }
+            });
+        }
+    }
+
+    @Override
+    public void removePlayerDataBatch(Collection<String> uuids) {
+        List<String> all = new ArrayList<>(uuids);
+        for (int from = 0; from < all.size(); from += CHUNK_SIZE) {
+            List<String> chunk = all.subList(from, Math.min(all.size(), from + CHUNK_SIZE));
+            inTransaction(conn -> {
+                recordRemovals(conn, "uuid", chunk);
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "DELETE FROM discord_whitelist WHERE uuid = ?")) {
+                    for (String uuid : chunk) {
+                        stmt.setString(1, uuid);
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+                }
+            });
+        }
+    }
+
+    @Override
+    public List<PlayerData> getLinksAfter(String afterUuid, int limit) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT uuid, username, discord_id, discord_username, linked_at FROM discord_whitelist "
+                             + "WHERE uuid > ? ORDER BY uuid LIMIT ?")) {
+            stmt.setString(1, afterUuid);
+            stmt.setInt(2, limit);
+            List<PlayerData> page = new ArrayList<>(limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    page.add(readLink(rs));
+                }
+            }
+            return page;
+        } catch (SQLException e) {
+            logger.warning("MySQL Error: " + e.getMessage());
+            throw new RuntimeException("Database error", e);
+        }
+    }
+
+    @Override
+    public List<String> getUsernamesByDiscordId(String discordId) {
+        List<String> usernames = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT username FROM discord_whitelist WHERE discord_id = ?")) {
+            stmt.setString(1, discordId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    usernames.add(rs.getString("username"));
+                }
+            }
+        } catch (SQLException e) {
+            logger.warning("MySQL Error: " + e.getMessage());
+            throw new RuntimeException("Database error", e);
+        }
+        return usernames;
+    }
+
+    @Override
+    public List<String> getUuidsByDiscordId(String discordId) {
+        List<String> uuids = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT uuid FROM discord_whitelist WHERE discord_id = ?")) {
+            stmt.setString(1, discordId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    uuids.add(rs.getString("uuid"));
+                }
+            }
+        } catch (SQLException e) {
+            logger.warning("MySQL Error: " + e.getMessage());
+            throw new RuntimeException("Database error", e);
+        }
+        return uuids;
+    }
+
+    @Override
+    public String getDiscordUsernameByMinecraftUsername(String username) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT discord_username FROM discord_whitelist WHERE username = ?")) {
+            stmt.setString(1, username);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getString("discord_username") : null;
+            }
+        } catch (SQLException e) {
+            logger.warning("MySQL Error: " + e.getMessage());
+            throw new RuntimeException("Database error", e);
+        }
+    }
+
+    @Override
+    public String getDiscordIdByUuid(String uuid) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT discord_id FROM discord_whitelist WHERE uuid = ?")) {
+            stmt.setString(1, uuid);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getString("discord_id") : null;
+            }
+        } catch (SQLException e) {
+            logger.warning("MySQL Error: " + e.getMessage());
+            throw new RuntimeException("Database error", e);
+        }
+    }
+
+    @Override
+    public PlayerData getLink(String uuid) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT uuid, username, discord_id, discord_username, linked_at FROM discord_whitelist WHERE uuid = ?")) {
+            stmt.setString(1, uuid);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? readLink(rs) : null;
+            }
+        } catch (SQLException e) {
+            logger.warning("MySQL Error: " + e.getMessage());
+            throw new RuntimeException("Database error", e);
+        }
+    }
+
+    @Override
+    public String getUuidByUsername(String username) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT uuid FROM discord_whitelist WHERE username = ?")) {
+            stmt.setString(1, username);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getString("uuid") : null;
+            }
+        } catch (SQLException e) {
+            logger.warning("MySQL Error: " + e.getMessage());
+            throw new RuntimeException("Database error", e);
+        }
+    }
+
+    @Override
+    public List<PlayerData> getLinksByUsernames(Collection<String> usernames) {
+        List<String> all = new ArrayList<>(usernames);
+        List<PlayerData> found = new ArrayList<>();
+        for (int from = 0; from < all.size(); from += CHUNK_SIZE) {
+            List<String> chunk = all.subList(from, Math.min(all.size(), from + CHUNK_SIZE));
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+            try (Connection conn = dataSource.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(
+                         "SELECT uuid, username, discord_id, discord_username, linked_at FROM discord_whitelist "
+                                 + "WHERE username IN (" + placeholders + ")")) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    stmt.setString(i + 1, chunk.get(i));
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        found.add(readLink(rs));
+                    }
+                }
+            } catch (SQLException e) {
+                logger.warning("MySQL Error: " + e.getMessage());
+                throw new RuntimeException("Database error", e);
+            }
+        }
+        return found;
+    }
+
+    private void inTransaction(SqlWork work) {
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                work.run(conn);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            logger.warning("MySQL Error: " + e.getMessage());
+            throw new RuntimeException("Database error", e);
+        }
+    }
+
+    /**
+     * Run a write, in a transaction when changes are being recorded alongside it.
+     */
+    private void write(SqlWork work) {
+        try (Connection conn = dataSource.getConnection()) {
+            if (changeOrigin == null) {
+                work.run(conn);
+                return;
+            }
+
+            conn.setAutoCommit(false);
+            try {
+                work.run(conn);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            logger.warning("MySQL Error: " + e.getMessage());
+            throw new RuntimeException("Database error", e);
+        }
+    }
+
+    private void recordAdd(Connection conn, String uuid, String username, String discordId,
+                           String previousDiscordId) throws SQLException {
+        if (changeOrigin == null) {
+            return;
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT INTO wingsync_changes (uuid, username, whitelisted, origin, discord_id, previous_discord_id) "
+                        + "VALUES (?, ?, TRUE, ?, ?, ?)")) {
+            stmt.setString(1, uuid);
+            stmt.setString(2, username);
+            stmt.setString(3, changeOrigin);
+            stmt.setString(4, discordId);
+            stmt.setString(5, previousDiscordId);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Record an add for each link about to be written over, with whoever owns it now, before the write.
+     */
+    private void recordReplacements(Connection conn, Collection<PlayerData> links) throws SQLException {
+        if (changeOrigin == null) {
+            return;
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT INTO wingsync_changes (uuid, username, whitelisted, origin, discord_id, previous_discord_id) "
+                        + "VALUES (?, ?, TRUE, ?, ?, (SELECT discord_id FROM discord_whitelist WHERE uuid = ?))")) {
+            for (PlayerData data : links) {
+                stmt.setString(1, data.uuid);
+                stmt.setString(2, data.username);
+                stmt.setString(3, changeOrigin);
+                stmt.setString(4, data.discordId);
+                stmt.setString(5, data.uuid);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * Record a removal for each linked row matching the given column, before it is deleted.
+     */
+    private void recordRemovals(Connection conn, String column, Collection<String> values) throws SQLException {
+        if (changeOrigin == null) {
+            return;
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT INTO wingsync_changes (uuid, username, whitelisted, origin, discord_id, previous_discord_id) "
+                        + "SELECT uuid, username, FALSE, ?, NULL, discord_id FROM discord_whitelist WHERE " + column + " = ?")) {
+            for (String value : values) {
+                stmt.setString(1, changeOrigin);
+                stmt.setString(2, value);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    @Override
+    public void close() {
+        dataSource.close();
+        logger.info("Database connection closed.");
+    }
+
+    private static PlayerData readLink(ResultSet rs) throws SQLException {
+        PlayerData data = new PlayerData(rs.getString("uuid"), rs.getString("username"),
+                rs.getString("discord_id"), rs.getString("discord_username"));
+        Timestamp linkedAt = rs.getTimestamp("linked_at");
+        data.linkedAt = linkedAt != null ? linkedAt.getTime() : 0;
+        return data;
+    }
+}
@@ -0,0 +1,27 @@
+/*
+ * Copyright (c) 2025 Clove Twilight
+ * Licensed under the MIT License
+ * WingSync
+ */
+
+package uk.co.clovetwilight3.wingsync.storage;
+
+/**
+ * A single Minecraft account to Discord user link.
+ * Field names are part of the playerdata.json format, so do not rename them.
+ */
+public class PlayerData {
+    public String uuid;
+    public String username;
+    public String discordId;
+    public String discordUsername;
+    public long linkedAt;
+
+    public PlayerData(String uuid, String username, String discordId, String discordUsername) {
+        this.uuid = uuid;
+        this.username = username;
+        this.discordId = discordId;
+        this.discordUsername = discordUsername;
+        this.linkedAt = System.currentTimeMillis();
+    }
+}
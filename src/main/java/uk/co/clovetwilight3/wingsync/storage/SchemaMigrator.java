@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2025 Clove Twilight
+ * Licensed under the MIT License
+ * WingSync
+ */
+
+package uk.co.clovetwilight3.wingsync.storage;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Brings the MySQL schema up to date. Each migration runs once and is
+ * recorded in wingsync_schema, so upgrading an existing install only runs
+ * the steps it is missing.
+ *
+ * On MySQL and MariaDB, servers sharing a database take a named lock first,
+ * so only one of them migrates at a time; an embedded stand-in has no other
+ * servers to wait for. Indexes and columns that already exist are skipped,
+ * so a migration that failed part way can simply run again.
+ *
+ * To change the schema, append a new migration; never edit an old one.
+ */
+public class SchemaMigrator {
+
+    private record Migration(int version, String description, List<String> statements) {
+    }
+
+    private static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "create discord_whitelist", List.of(
+                    "CREATE TABLE IF NOT EXISTS discord_whitelist ("
+                            + "uuid VARCHAR(36) PRIMARY KEY,"
+                            + "username VARCHAR(50) NOT NULL,"
+                            + "discord_id VARCHAR(20) NOT NULL,"
+                            + "discord_username VARCHAR(50) NOT NULL,"
+                            + "linked_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)")),
+            new Migration(2, "index discord_id and username", List.of(
+                    "CREATE INDEX idx_discord_whitelist_discord_id ON discord_whitelist (discord_id)",
+                    "CREATE INDEX idx_discord_whitelist_username ON discord_whitelist (username)")),
+            new Migration(3, "network change feed and lease", List.of(
+                    "CREATE TABLE IF NOT EXISTS wingsync_changes ("
+                            + "version BIGINT AUTO_INCREMENT PRIMARY KEY,"
+                            + "uuid VARCHAR(36) NOT NULL,"
+                            + "username VARCHAR(50) NOT NULL,"
+                            + "whitelisted BOOLEAN NOT NULL,"
+                            + "origin VARCHAR(64) NOT NULL,"
+                            + "changed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)",
+                    "CREATE INDEX idx_wingsync_changes_changed_at ON wingsync_changes (changed_at)",
+                    "CREATE TABLE IF NOT EXISTS wingsync_lease ("
+                            + "name VARCHAR(32) PRIMARY KEY,"
+                            + "owner VARCHAR(64) NOT NULL,"
+                            + "expires_at DATETIME NOT NULL)")),
+            new Migration(4, "link history", List.of(
+                    "CREATE TABLE IF NOT EXISTS wingsync_history ("
+                            + "id BIGINT AUTO_INCREMENT PRIMARY KEY,"
+                            + "occurred_at BIGINT NOT NULL,"
+                            + "action VARCHAR(20) NOT NULL,"
+                            + "uuid VARCHAR(36),"
+                            + "username VARCHAR(50),"
+                            + "discord_id VARCHAR(20),"
+                            + "actor VARCHAR(64) NOT NULL)",
+                    "CREATE INDEX idx_wingsync_history_occurred_at ON wingsync_history (occurred_at)",
+                    "CREATE INDEX idx_wingsync_history_uuid ON wingsync_history (uuid, occurred_at)",
+                    "CREATE INDEX idx_wingsync_history_username ON wingsync_history (username, occurred_at)",
+                    "CREATE INDEX idx_wingsync_history_discord_id ON wingsync_history (discord_id, occurred_at)")),
+            new Migration(5, "per-user link locks", List.of(
+                    // One row per Discord user, locked while their links are counted and changed
+                    "CREATE TABLE IF NOT EXISTS wingsync_link_owners ("
+                            + "discord_id VARCHAR(20) PRIMARY KEY)")),
+            new Migration(6, "discord IDs in the change feed", List.of(
+                    // Who owned the link after and before each change, so caches can drop just those users
+                    "ALTER TABLE wingsync_changes ADD COLUMN discord_id VARCHAR(20)",
+                    "ALTER TABLE wingsync_changes ADD COLUMN previous_discord_id VARCHAR(20)"))
+    );
+
+    private static final String LOCK_NAME = "wingsync_schema";
+    private static final int LOCK_TIMEOUT_SECONDS = 60;
+    private static final Pattern CREATE_INDEX = Pattern.compile("CREATE INDEX (\\w+) ON (\\w+) .*");
+    private static final Pattern ADD_COLUMN = Pattern.compile("ALTER TABLE (\\w+) ADD COLUMN (\\w+) .*");
+
+    private final Logger logger;
+
+    public SchemaMigrator(Logger logger) {
+        this.logger = logger;
+    }
+
+    public void migrate(Connection conn) throws SQLException {
+        if (!supportsNamedLocks(conn)) {
+            migrateLocked(conn);
+            return;
+        }
+
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            stmt.setString(1, LOCK_NAME);
+            stmt.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException("Timed out waiting for another server to finish migrating the schema");
+                }
+            }
+        }
+        try {
+            migrateLocked(conn);
+        } finally {
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+                stmt.setString(1, LOCK_NAME);
+                stmt.execute();
+            }
+        }
+    }
+
+    private void migrateLocked(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS wingsync_schema ("
+                    + "version INT PRIMARY KEY,"
+                    + "description VARCHAR(100) NOT NULL,"
+                    + "applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+        }
+
+        int current = currentVersion(conn);
+        for (Migration migration : MIGRATIONS) {
+            if (migration.version() <= current) {
+                continue;
+            }
+
+            try (Statement stmt = conn.createStatement()) {
+                for (String sql : migration.statements()) {
+                    Matcher index = CREATE_INDEX.matcher(sql);
+                    if (index.matches() && indexExists(conn, index.group(2), index.group(1))) {
+                        continue;
+                    }
+                    Matcher column = ADD_COLUMN.matcher(sql);
+                    if (column.matches() && columnExists(conn, column.group(1), column.group(2))) {
+                        continue;
+                    }
+                    stmt.execute(sql);
+                }
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT INTO wingsync_schema (version, description) VALUES (?, ?)")) {
+                stmt.setInt(1, migration.version());
+                stmt.setString(2, migration.description());
+                stmt.executeUpdate();
+            }
+            logger.info("Applied schema migration " + migration.version() + ": " + migration.description());
+        }
+    }
+
+    /**
+     * GET_LOCK only exists on MySQL itself and MariaDB, not in H2's MySQL mode.
+     */
+    private static boolean supportsNamedLocks(Connection conn) throws SQLException {
+        String product = conn.getMetaData().getDatabaseProductName();
+        return product.equalsIgnoreCase("MySQL") || product.equalsIgnoreCase("MariaDB");
+    }
+
+    private static boolean indexExists(Connection conn, String table, String index) throws SQLException {
+        try (ResultSet rs = conn.getMetaData().getIndexInfo(conn.getCatalog(), null, table, false, false)) {
+            while (rs.next()) {
+                if (index.equalsIgnoreCase(rs.getString("INDEX_NAME"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean columnExists(Connection conn, String table, String column) throws SQLException {
+        try (ResultSet rs = conn.getMetaData().getColumns(conn.getCatalog(), null, table, null)) {
+            while (rs.next()) {
+                if (column.equalsIgnoreCase(rs.getString("COLUMN_NAME"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private int currentVersion(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT MAX(version) FROM wingsync_schema");
+             ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2025 Clove Twilight
+ * Licensed under the MIT License
+ * WingSync
+ */
+
+package uk.co.clovetwilight3.wingsync.storage;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * A file format for the file-mode snapshot that {@link JournaledFileStore}
+ * compacts into.
+ */
+interface SnapshotCodec {
+
+    /**
+     * @return The snapshot's file name inside the data folder
+     */
+    String fileName();
+
+    /**
+     * Read records one at a time, handing each to the sink as it is decoded.
+     * Records that cannot be decoded are skipped rather than failing the read.
+     * @return How many records were skipped
+     */
+    int read(Path file, Consumer<PlayerData> sink) throws IOException;
+
+    /**
+     * Write every record and sync the file to disk. The caller renames it into place.
+     */
+    void write(Path file, Collection<PlayerData> records) throws IOException;
+}
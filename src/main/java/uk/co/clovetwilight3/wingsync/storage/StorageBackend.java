@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2025 Clove Twilight
+ * Licensed under the MIT License
+ * WingSync
+ */
+
+package uk.co.clovetwilight3.wingsync.storage;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A place to keep player links. Implementations must be safe to call from
+ * any thread and report storage failures as unchecked exceptions.
+ */
+public interface StorageBackend {
+
+    /**
+     * @return A short human-readable name, e.g. "MySQL Database"
+     */
+    String getName();
+
+    /**
+     * @return One line describing where data lives, for the /storage command
+     */
+    String describe();
+
+    void storePlayerData(String uuid, String username, String discordId, String discordUsername);
+
+    /**
+     * Link an account to a Discord user if the link policy allows it. The
+     * checks and the write happen as one step, so concurrent links can never
+     * get past the limit or take an account from each other.
+     *
+     * @param maxAccounts How many accounts the Discord user may have linked at most; 0 for no limit
+     * @param takeOver    Replace the link if the account belongs to a different Discord user
+     */
+    LinkResult linkPlayer(String uuid, String username, String discordId, String discordUsername,
+                          int maxAccounts, boolean takeOver);
+
+    void removePlayerData(String uuid);
+
+    /**
+     * Store many links at once, replacing any existing link for the same UUID.
+     * Used for bulk imports, where one write per link would be far too slow.
+     */
+    void storePlayerDataBatch(Collection<PlayerData> links);
+
+    /**
+     * Remove many links by UUID at once.
+     */
+    void removePlayerDataBatch(Collection<String> uuids);
+
+    /**
+     * @param afterUuid Only return links whose UUID sorts after this; "" for the first page
+     * @return Up to limit links in UUID order, for walking the whole store a page at a time
+     */
+    List<PlayerData> getLinksAfter(String afterUuid, int limit);
+
+    /**
+     * Visit every stored link without loading them all into memory at once.
+     * By default this walks the store a page at a time in UUID order.
+     */
+    default void forEachLink(Consumer<PlayerData> action) {
+        String after = "";
+        List<PlayerData> page;
+        do {
+            page = getLinksAfter(after, 1000);
+            page.forEach(action);
+            if (!page.isEmpty()) {
+                after = page.get(page.size() - 1).uuid;
+            }
+        } while (page.size() == 1000);
+    }
+
+    List<String> getUsernamesByDiscordId(String discordId);
+
+    /**
+     * @return The UUIDs of every Minecraft account linked to this Discord user
+     */
+    List<String> getUuidsByDiscordId(String discordId);
+
+    String getDiscordUsernameByMinecraftUsername(String username);
+
+    String getDiscordIdByUuid(String uuid);
+
+    /**
+     * @return The link for this Minecraft account, or null if it is not linked
+     */
+    PlayerData getLink(String uuid);
+
+    /**
+     * @return The UUID linked to a Minecraft username (case-insensitive), or null
+     */
+    String getUuidByUsername(String username);
+
+    /**
+     * Look up many Minecraft usernames (case-insensitive) in one storage round-trip.
+     * @return The links found, in no particular order; names that are not linked are left out
+     */
+    List<PlayerData> getLinksByUsernames(Collection<String> usernames);
+
+    /**
+     * Flush anything outstanding and release resources. Blocks until done.
+     */
+    void close();
+}
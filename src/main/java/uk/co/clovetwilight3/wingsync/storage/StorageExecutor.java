@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2025 Clove Twilight
+ * Licensed under the MIT License
+ * WingSync
+ */
+
+package uk.co.clovetwilight3.wingsync.storage;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs storage work off the server thread.
+ *
+ * Each task gets its own virtual thread, so a slow database parks a cheap
+ * virtual thread instead of a tick. Work that must touch the server (such as
+ * editing the whitelist) hops back with {@link #onMainThread(Supplier)}.
+ */
+public class StorageExecutor {
+
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("WingSync-Storage-", 0).factory());
+    private final Executor mainThread;
+
+    /**
+     * @param mainThread Runs a task on the server thread, e.g. through the Bukkit scheduler
+     */
+    public StorageExecutor(Executor mainThread) {
+        this.mainThread = mainThread;
+    }
+
+    public <T> CompletableFuture<T> supply(Supplier<T> task) {
+        return CompletableFuture.supplyAsync(task, executor);
+    }
+
+    public CompletableFuture<Void> run(Runnable task) {
+        return CompletableFuture.runAsync(task, executor);
+    }
+
+    public <T> CompletableFuture<T> onMainThread(Supplier<T> task) {
+        return CompletableFuture.supplyAsync(task, mainThread);
+    }
+
+    /**
+     * @return An executor that runs tasks on storage threads, for use with the *Async future methods
+     */
+    public Executor executor() {
+        return executor;
+    }
+
+    /**
+     * Stop accepting work and wait a bounded time for running tasks to finish.
+     */
+    public void close(long timeout, TimeUnit unit) throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(timeout, unit)) {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2025 Clove Twilight
+ * Licensed under the MIT License
+ * WingSync
+ */
+
+package uk.co.clovetwilight3.wingsync.storage;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Copies every link from one storage backend to another.
+ *
+ * Links are read in UUID order a chunk at a time and written with one batch
+ * per chunk, so memory use does not grow with the number of links. The last
+ * UUID copied is saved after every chunk, so an interrupted copy picks up
+ * where it stopped. Once copied, both sides are walked again in UUID order to
+ * compare counts and checksums.
+ */
+public class StorageMigrator {
+
+    /**
+     * @param missing   Links in the source that the target does not have
+     * @param different Links stored on both sides with different details
+     * @param extra     Links in the target that the source does not have
+     */
+    public record Result(long copied, long sourceCount, long targetCount, long sourceChecksum, long targetChecksum,
+                         long missing, long different, long extra) {
+        public boolean verified() {
+            return sourceCount == targetCount && sourceChecksum == targetChecksum;
+        }
+    }
+
+    private final int chunkSize;
+    private volatile boolean cancelled;
+
+    public StorageMigrator(int chunkSize) {
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * Copy and verify. Blocks until done, so run it off the server thread.
+     *
+     * @param checkpoint Where progress is kept; an existing checkpoint is resumed from
+     * @param restart    Ignore any existing checkpoint and copy everything again
+     * @param progress   Told what the migration is doing as it goes
+     * @throws CancellationException If {@link #cancel()} was called; the checkpoint is kept
+     */
+    public Result migrate(StorageBackend source, StorageBackend target, Path checkpoint, boolean restart,
+                          Consumer<String> progress) throws IOException {
+        cancelled = false;
+
+        String after = "";
+        if (!restart && Files.exists(checkpoint)) {
+            after = Files.readString(checkpoint, StandardCharsets.UTF_8).trim();
+            progress.accept("Resuming after " + after + "...");
+        }
+
+        long copied = 0;
+        List<PlayerData> chunk;
+        do {
+            if (cancelled) {
+                throw new CancellationException("Migration stopped after " + copied + " links");
+            }
+            chunk = source.getLinksAfter(after, chunkSize);
+            if (chunk.isEmpty()) {
+                break;
+            }
+            target.storePlayerDataBatch(chunk);
+            after = chunk.get(chunk.size() - 1).uuid;
+            writeCheckpoint(checkpoint, after);
+
+            long before = copied;
+            copied += chunk.size();
+            if (copied / (chunkSize * 10L) != before / (chunkSize * 10L)) {
+                progress.accept("Copied " + copied + " links...");
+            }
+        } while (chunk.size() == chunkSize);
+
+        // The copy is complete, so a later run starts from the beginning again
+        Files.deleteIfExists(checkpoint);
+
+        progress.accept("Copied " + copied + " links. Verifying...");
+        return verify(source, target, copied);
+    }
+
+    /**
+     * Stop a running migration after the chunk in progress.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    private Result verify(StorageBackend source, StorageBackend target, long copied) {
+        Cursor sourceLinks = new Cursor(source);
+        Cursor targetLinks = new Cursor(target);
+        long missing = 0;
+        long different = 0;
+        long extra = 0;
+
+        // Merge the two UUID-ordered streams, like a sorted merge join
+        PlayerData fromSource = sourceLinks.next();
+        PlayerData fromTarget = targetLinks.next();
+        while (fromSource != null || fromTarget != null) {
+            if (cancelled) {
+                throw new CancellationException("Verification stopped");
+            }
+            int order = fromSource == null ? 1 : fromTarget == null ? -1 : fromSource.uuid.compareTo(fromTarget.uuid);
+            if (order < 0) {
+                missing++;
+                fromSource = sourceLinks.next();
+            } else if (order > 0) {
+                extra++;
+                fromTarget = targetLinks.next();
+            } else {
+                if (!sameLink(fromSource, fromTarget)) {
+                    different++;
+                }
+                fromSource = sourceLinks.next();
+                fromTarget = targetLinks.next();
+            }
+        }
+
+        return new Result(copied, sourceLinks.count, targetLinks.count, sourceLinks.checksum.getValue(),
+                targetLinks.checksum.getValue(), missing, different, extra);
+    }
+
+    private static boolean sameLink(PlayerData a, PlayerData b) {
+        // linked_at is left out: MySQL keeps it to the second, the file to the millisecond
+        return Objects.equals(a.username, b.username)
+                && Objects.equals(a.discordId, b.discordId)
+                && Objects.equals(a.discordUsername, b.discordUsername);
+    }
+
+    private void writeCheckpoint(Path checkpoint, String lastUuid) throws IOException {
+        Path temp = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+        Files.writeString(temp, lastUuid, StandardCharsets.UTF_8);
+        try {
+            Files.move(temp, checkpoint, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, checkpoint, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Walks one backend in UUID order a chunk at a time, counting and
+     * checksumming every link it hands out.
+     */
+    private class Cursor {
+        private final StorageBackend backend;
+        private final CRC32 checksum = new CRC32();
+        private Iterator<PlayerData> page = List.<PlayerData>of().iterator();
+        private String after = "";
+        private boolean exhausted;
+        private long count;
+
+        Cursor(StorageBackend backend) {
+            this.backend = backend;
+        }
+
+        /**
+         * @return The next link, or null once every link has been read
+         */
+        PlayerData next() {
+            if (!page.hasNext()) {
+                if (exhausted) {
+                    return null;
+                }
+                List<PlayerData> chunk = backend.getLinksAfter(after, chunkSize);
+                exhausted = chunk.size() < chunkSize;
+                if (chunk.isEmpty()) {
+                    return null;
+                }
+                after = chunk.get(chunk.size() - 1).uuid;
+                page = chunk.iterator();
+            }
+
+            PlayerData data = page.next();
+            count++;
+            for (String field : new String[]{data.uuid, data.username, data.discordId, data.discordUsername}) {
+                checksum.update((field != null ? field : "\u0000null").getBytes(StandardCharsets.UTF_8));
+                checksum.update('\n');
+            }
+            return data;
+        }
+    }
+}
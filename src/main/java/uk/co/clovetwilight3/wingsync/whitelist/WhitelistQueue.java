@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2025 Clove Twilight
+ * Licensed under the MIT License
+ * WingSync
+ */
+
+package uk.co.clovetwilight3.wingsync.whitelist;
+
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.plugin.Plugin;
+import uk.co.clovetwilight3.wingsync.metrics.MetricsRegistry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+
+/**
+ * Collects whitelist adds and removes from any thread and applies them
+ * together in a single server tick.
+ *
+ * Changes go straight through {@link OfflinePlayer#setWhitelisted(boolean)}
+ * rather than dispatching a console command per player, and a change that
+ * would not alter the whitelist is skipped, so it never triggers a rewrite
+ * of whitelist.json. Each caller gets a future telling it whether its change
+ * actually altered the whitelist.
+ */
+public class WhitelistQueue {
+
+    private record Change(OfflinePlayer player, boolean whitelisted, CompletableFuture<Boolean> result, long queuedAt) {
+    }
+
+    private final Plugin plugin;
+    private final MetricsRegistry metrics;
+    private final long windowTicks;
+    private final ConcurrentLinkedQueue<Change> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final List<BiConsumer<OfflinePlayer, Boolean>> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param windowTicks How long to collect changes before applying them
+     */
+    public WhitelistQueue(Plugin plugin, MetricsRegistry metrics, long windowTicks) {
+        this.plugin = plugin;
+        this.metrics = metrics;
+        metrics.help("wingsync_main_thread_wait_seconds", "Time a whitelist change waits before the server thread applies it");
+        this.windowTicks = Math.max(1, windowTicks);
+    }
+
+    /**
+     * @return A future completed on the server thread with true if the player
+     *         was added, or false if they were already whitelisted
+     */
+    public CompletableFuture<Boolean> add(OfflinePlayer player) {
+        return enqueue(player, true);
+    }
+
+    /**
+     * @return A future completed on the server thread with true if the player
+     *         was removed, or false if they were not whitelisted
+     */
+    public CompletableFuture<Boolean> remove(OfflinePlayer player) {
+        return enqueue(player, false);
+    }
+
+    /**
+     * Register a callback for every change that actually altered the whitelist.
+     * Callbacks run on the server thread and must be quick.
+     */
+    public void addListener(BiConsumer<OfflinePlayer, Boolean> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Apply everything queued so far. Must be called on the server thread.
+     */
+    public void flush() {
+        flushScheduled.set(false);
+
+        List<Change> batch = new ArrayList<>();
+        Change change;
+        while ((change = pending.poll()) != null) {
+            batch.add(change);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        int applied = 0;
+        for (Change next : batch) {
+            metrics.histogram("wingsync_main_thread_wait_seconds", "").recordNanos(start - next.queuedAt());
+            try {
+                boolean changed = next.player().isWhitelisted() != next.whitelisted();
+                if (changed) {
+                    next.player().setWhitelisted(next.whitelisted());
+                    applied++;
+                    for (BiConsumer<OfflinePlayer, Boolean> listener : listeners) {
+                        listener.accept(next.player(), next.whitelisted());
+                    }
+                }
+                next.result().complete(changed);
+            } catch (Exception e) {
+                next.result().completeExceptionally(e);
+            }
+        }
+
+        metrics.histogram("wingsync_whitelist_batch_seconds", "").recordSince(start);
+        if (batch.size() > 1) {
+            plugin.getLogger().info("Applied " + applied + " of " + batch.size() + " queued whitelist changes.");
+        }
+    }
+
+    private CompletableFuture<Boolean> enqueue(OfflinePlayer player, boolean whitelisted) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        pending.add(new Change(player, whitelisted, result, System.nanoTime()));
+
+        if (flushScheduled.compareAndSet(false, true)) {
+            try {
+                Bukkit.getScheduler().runTaskLater(plugin, this::flush, windowTicks);
+            } catch (Exception e) {
+                // Plugin is disabling; onDisable flushes whatever is left
+                flushScheduled.set(false);
+            }
+        }
+        return result;
+    }
+}
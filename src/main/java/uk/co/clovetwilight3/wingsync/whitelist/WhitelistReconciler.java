@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2025 Clove Twilight
+ * Licensed under the MIT License
+ * WingSync
+ */
+
+package uk.co.clovetwilight3.wingsync.whitelist;
+
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import uk.co.clovetwilight3.wingsync.audit.AuditEvent;
+import uk.co.clovetwilight3.wingsync.audit.AuditLog;
+import uk.co.clovetwilight3.wingsync.storage.PlayerData;
+import uk.co.clovetwilight3.wingsync.storage.StorageBackend;
+import uk.co.clovetwilight3.wingsync.storage.StorageExecutor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Compares the server whitelist with WingSync's stored links and fixes any
+ * difference between them.
+ *
+ * The server whitelist is treated as the source of truth: whitelisted players
+ * with no link are imported with a placeholder Discord account, and links for
+ * players no longer on the whitelist are removed. Both sides are streamed once
+ * and the fix is applied as one storage batch in each direction.
+ *
+ * Players registering while it runs are left alone: queued whitelist changes
+ * are applied before the whitelist is read, links made after that are never
+ * removed, and a removal is dropped if the player is whitelisted by the time
+ * it would be applied.
+ */
+public class WhitelistReconciler {
+
+    /** Discord ID given to players imported from the server whitelist. */
+    public static final String UNLINKED_DISCORD_ID = "0";
+    public static final String UNLINKED_DISCORD_USERNAME = "unlinked (imported from whitelist)";
+
+    // How many stored links to read between progress updates
+    private static final int PROGRESS_EVERY = 5000;
+
+    /**
+     * What differs between the two sides, as UUID -> username.
+     */
+    public record Diff(int whitelisted, int stored, Map<String, String> whitelistOnly,
+                       Map<String, String> storageOnly, boolean applied) {
+        public boolean isEmpty() {
+            return whitelistOnly.isEmpty() && storageOnly.isEmpty();
+        }
+    }
+
+    // The whitelist as copied on the server thread, and when
+    private record WhitelistCopy(Map<String, String> players, long takenAt) {
+    }
+
+    private final StorageExecutor storageExecutor;
+    private final Supplier<StorageBackend> storage;
+    private final WhitelistQueue whitelistQueue;
+    private final AuditLog audit;
+    private final Logger logger;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public WhitelistReconciler(StorageExecutor storageExecutor, Supplier<StorageBackend> storage,
+                               WhitelistQueue whitelistQueue, AuditLog audit, Logger logger) {
+        this.storageExecutor = storageExecutor;
+        this.storage = storage;
+        this.whitelistQueue = whitelistQueue;
+        this.audit = audit;
+        this.logger = logger;
+    }
+
+    /**
+     * Start a reconciliation on the storage executor.
+     *
+     * @param dryRun   Only work out the difference, without changing anything
+     * @param actor    Who asked for it, for the history
+     * @param progress Told what the job is doing as it goes; called from this thread, then the storage executor
+     * @return A future completed with the difference found, or null if a run is already in progress
+     */
+    public CompletableFuture<Diff> reconcile(boolean dryRun, String actor, Consumer<String> progress) {
+        if (!running.compareAndSet(false, true)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        progress.accept("Reading the server whitelist...");
+        // The server thread owns the whitelist, so it is copied there and compared off it
+        return storageExecutor.onMainThread(this::copyWhitelist)
+                .thenApplyAsync(whitelist -> compare(whitelist, progress), storageExecutor.executor())
+                .thenCompose(diff -> dryRun || diff.storageOnly().isEmpty()
+                        ? CompletableFuture.completedFuture(diff)
+                        : storageExecutor.onMainThread(() -> keepWhitelisted(diff)))
+                .thenApplyAsync(diff -> dryRun ? diff : apply(diff, actor, progress), storageExecutor.executor())
+                .whenComplete((diff, error) -> running.set(false));
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    /**
+     * Must run on the server thread.
+     */
+    private WhitelistCopy copyWhitelist() {
+        // Registrations waiting in the queue are already stored, so put them on the whitelist first
+        whitelistQueue.flush();
+        Map<String, String> whitelist = new HashMap<>();
+        for (OfflinePlayer player : Bukkit.getWhitelistedPlayers()) {
+            String name = player.getName() != null ? player.getName() : player.getUniqueId().toString();
+            whitelist.put(player.getUniqueId().toString(), name);
+        }
+        return new WhitelistCopy(whitelist, System.currentTimeMillis());
+    }
+
+    private Diff compare(WhitelistCopy whitelist, Consumer<String> progress) {
+        StorageBackend backend = storage.get();
+        // Whatever is left in it after streaming storage has no stored link
+        Map<String, String> whitelistOnly = whitelist.players();
+        int whitelisted = whitelistOnly.size();
+        // MySQL keeps whole seconds, so allow for a link made in the same second as the copy
+        long linkedBefore = whitelist.takenAt() - 1000;
+
+        progress.accept("Comparing with " + backend.getName() + " storage...");
+        Map<String, String> storageOnly = new HashMap<>();
+        int[] stored = {0};
+        backend.forEachLink(link -> {
+            // A link made after the copy may still be on its way to the whitelist
+            if (whitelistOnly.remove(link.uuid) == null && link.linkedAt < linkedBefore) {
+                storageOnly.put(link.uuid, link.username);
+            }
+            if (++stored[0] % PROGRESS_EVERY == 0) {
+                progress.accept("Compared " + stored[0] + " stored links...");
+            }
+        });
+        return new Diff(whitelisted, stored[0], whitelistOnly, storageOnly, false);
+    }
+
+    /**
+     * Drop links whose player was whitelisted while storage was being read.
+     * Must run on the server thread.
+     */
+    private Diff keepWhitelisted(Diff diff) {
+        whitelistQueue.flush();
+        Map<String, String> storageOnly = new HashMap<>(diff.storageOnly());
+        storageOnly.keySet().removeIf(uuid -> Bukkit.getOfflinePlayer(UUID.fromString(uuid)).isWhitelisted());
+        return new Diff(diff.whitelisted(), diff.stored(), diff.whitelistOnly(), storageOnly, false);
+    }
+
+    private Diff apply(Diff diff, String actor, Consumer<String> progress) {
+        StorageBackend backend = storage.get();
+        Map<String, String> whitelistOnly = diff.whitelistOnly();
+        Map<String, String> storageOnly = diff.storageOnly();
+        if (!whitelistOnly.isEmpty()) {
+            progress.accept("Importing " + whitelistOnly.size() + " whitelisted players...");
+            List<PlayerData> imports = new ArrayList<>(whitelistOnly.size());
+            whitelistOnly.forEach((uuid, name) ->
+                    imports.add(new PlayerData(uuid, name, UNLINKED_DISCORD_ID, UNLINKED_DISCORD_USERNAME)));
+            backend.storePlayerDataBatch(imports);
+            whitelistOnly.forEach((uuid, name) -> audit.record(
+                    AuditEvent.now(AuditEvent.RECONCILE_IMPORT, uuid, name, UNLINKED_DISCORD_ID, actor)));
+        }
+        if (!storageOnly.isEmpty()) {
+            progress.accept("Removing " + storageOnly.size() + " links for players not on the whitelist...");
+            backend.removePlayerDataBatch(storageOnly.keySet());
+            storageOnly.forEach((uuid, name) -> audit.record(
+                    AuditEvent.now(AuditEvent.RECONCILE_REMOVE, uuid, name, null, actor)));
+        }
+        logger.info("Reconciled the whitelist with WingSync data: imported " + whitelistOnly.size()
+                + ", removed " + storageOnly.size() + ".");
+        return new Diff(diff.whitelisted(), diff.stored(), whitelistOnly, storageOnly, true);
+    }
+
+    /**
+     * @return A plain text report of the difference, one player per line
+     */
+    public static String render(Diff diff) {
+        StringBuilder out = new StringBuilder();
+        out.append("WingSync whitelist reconciliation").append(diff.applied() ? "" : " (dry run)").append('\n');
+        out.append("Whitelisted players: ").append(diff.whitelisted()).append('\n');
+        out.append("Stored links: ").append(diff.stored()).append('\n');
+        out.append('\n');
+
+        out.append(diff.applied() ? "Imported" : "On the whitelist but not stored")
+                .append(" (").append(diff.whitelistOnly().size()).append("):\n");
+        appendPlayers(out, diff.whitelistOnly());
+        out.append('\n');
+
+        out.append(diff.applied() ? "Removed" : "Stored but not on the whitelist")
+                .append(" (").append(diff.storageOnly().size()).append("):\n");
+        appendPlayers(out, diff.storageOnly());
+        return out.toString();
+    }
+
+    private static void appendPlayers(StringBuilder out, Map<String, String> players) {
+        players.entrySet().stream()
+                .sorted(Map.Entry.comparingByValue(String.CASE_INSENSITIVE_ORDER))
+                .forEach(entry -> out.append(entry.getValue()).append('\t').append(entry.getKey()).append('\n'));
+    }
+}
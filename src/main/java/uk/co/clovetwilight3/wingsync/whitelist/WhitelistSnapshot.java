@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2025 Clove Twilight
+ * Licensed under the MIT License
+ * WingSync
+ */
+
+package uk.co.clovetwilight3.wingsync.whitelist;
+
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import uk.co.clovetwilight3.wingsync.storage.StorageExecutor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A sorted copy of the server whitelist for paging through in Discord.
+ *
+ * The first read copies it on the server thread and sorts the copy off it.
+ * After that it is kept up to date incrementally from {@link WhitelistQueue}
+ * changes, and is reloaded in full only every so often to pick up edits made
+ * outside WingSync. Pages are served from a flat array that is rebuilt only
+ * after the whitelist changes.
+ */
+public class WhitelistSnapshot {
+
+    private record Pages(long version, String[] names) {
+    }
+
+    private record Entry(UUID uuid, String name, boolean whitelisted) {
+    }
+
+    private final StorageExecutor storageExecutor;
+    private final long refreshAfterMillis;
+
+    // Sort key (case-folded name + UUID) -> display name
+    private final ConcurrentSkipListMap<String, String> sorted = new ConcurrentSkipListMap<>();
+    private final Map<UUID, String> sortKeys = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+    private final Object writeLock = new Object();
+    // Changes made while a full reload is running, replayed on top of it. Guarded by writeLock
+    private final List<Entry> changedDuringReload = new ArrayList<>();
+    private boolean reloading;
+
+    private volatile Pages pages = new Pages(-1, new String[0]);
+    private volatile CompletableFuture<Void> loading;
+    private volatile long loadedAt;
+
+    /**
+     * @param refreshAfterMillis How long before a full reload picks up changes made outside WingSync
+     */
+    public WhitelistSnapshot(StorageExecutor storageExecutor, long refreshAfterMillis) {
+        this.storageExecutor = storageExecutor;
+        this.refreshAfterMillis = refreshAfterMillis;
+    }
+
+    /**
+     * @return A future completed with the current sorted names, loading them first if needed
+     */
+    public CompletableFuture<String[]> names() {
+        return ensureLoaded().thenApply(ignored -> currentPages().names());
+    }
+
+    /**
+     * @return Up to pageSize names starting at page * pageSize
+     */
+    public static List<String> page(String[] names, int page, int pageSize) {
+        int from = Math.min(names.length, Math.max(0, page) * pageSize);
+        int to = Math.min(names.length, from + pageSize);
+        return Arrays.asList(names).subList(from, to);
+    }
+
+    /**
+     * Apply one whitelist change. Called by {@link WhitelistQueue} on the server thread.
+     */
+    public void onChange(OfflinePlayer player, boolean whitelisted) {
+        Entry change = new Entry(player.getUniqueId(), displayName(player), whitelisted);
+        synchronized (writeLock) {
+            apply(change);
+            if (reloading) {
+                changedDuringReload.add(change);
+            }
+            version.incrementAndGet();
+        }
+    }
+
+    private synchronized CompletableFuture<Void> ensureLoaded() {
+        CompletableFuture<Void> current = loading;
+        if (current == null || current.isCompletedExceptionally()) {
+            loading = reload();
+            return loading;
+        }
+        if (current.isDone() && System.currentTimeMillis() - loadedAt > refreshAfterMillis) {
+            // Serve the slightly stale copy while a full reload runs in the background
+            loading = reload();
+        }
+        return current;
+    }
+
+    /**
+     * Copy the whitelist on the server thread, which owns it, then sort the
+     * copy on a storage thread. Changes made in between are replayed on top.
+     */
+    private CompletableFuture<Void> reload() {
+        return storageExecutor.onMainThread(() -> {
+            List<Entry> players = new ArrayList<>();
+            for (OfflinePlayer player : Bukkit.getWhitelistedPlayers()) {
+                players.add(new Entry(player.getUniqueId(), displayName(player), true));
+            }
+            synchronized (writeLock) {
+                // Every change from here on reaches onChange after this copy was taken
+                reloading = true;
+                changedDuringReload.clear();
+            }
+            return players;
+        }).thenAcceptAsync(this::replaceWith, storageExecutor.executor()).whenComplete((ignored, error) -> {
+            synchronized (writeLock) {
+                reloading = false;
+                changedDuringReload.clear();
+            }
+        });
+    }
+
+    private void replaceWith(List<Entry> players) {
+        ConcurrentSkipListMap<String, String> loadedSorted = new ConcurrentSkipListMap<>();
+        Map<UUID, String> loadedKeys = new HashMap<>();
+        for (Entry player : players) {
+            String key = sortKey(player);
+            loadedKeys.put(player.uuid(), key);
+            loadedSorted.put(key, player.name());
+        }
+
+        synchronized (writeLock) {
+            sorted.clear();
+            sorted.putAll(loadedSorted);
+            sortKeys.clear();
+            sortKeys.putAll(loadedKeys);
+            for (Entry change : changedDuringReload) {
+                apply(change);
+            }
+            version.incrementAndGet();
+        }
+        loadedAt = System.currentTimeMillis();
+    }
+
+    private void apply(Entry change) {
+        if (change.whitelisted()) {
+            String key = sortKey(change);
+            String previous = sortKeys.put(change.uuid(), key);
+            if (previous != null) {
+                sorted.remove(previous);
+            }
+            sorted.put(key, change.name());
+        } else {
+            String key = sortKeys.remove(change.uuid());
+            if (key != null) {
+                sorted.remove(key);
+            }
+        }
+    }
+
+    private static String displayName(OfflinePlayer player) {
+        return player.getName() != null ? player.getName() : player.getUniqueId().toString();
+    }
+
+    private static String sortKey(Entry player) {
+        return player.name().toLowerCase(Locale.ROOT) + '\0' + player.uuid();
+    }
+
+    private Pages currentPages() {
+        Pages current = pages;
+        long now = version.get();
+        if (current.version() == now) {
+            return current;
+        }
+
+        synchronized (writeLock) {
+            current = new Pages(version.get(), sorted.values().toArray(new String[0]));
+        }
+        pages = current;
+        return current;
+    }
+}